@@ -29,17 +29,125 @@ CREATE TABLE IF NOT EXISTS t_task (
     video_url VARCHAR(1024) DEFAULT NULL COMMENT '视频URL（source_type=2时使用）',
     video_local_path VARCHAR(512) DEFAULT NULL COMMENT '视频本地路径',
     audio_local_path VARCHAR(512) DEFAULT NULL COMMENT '音频本地路径',
-    task_status INT NOT NULL DEFAULT 1 COMMENT '任务状态：1-待处理，2-下载中，3-音频提取中，4-转录中，5-排版中，6-已完成，7-失败',
+    task_status INT NOT NULL DEFAULT 1 COMMENT '任务状态：1-待处理，2-下载中，3-音频提取中，4-转录中，5-排版中，6-已完成，7-失败，8-已取消',
     raw_text LONGTEXT DEFAULT NULL COMMENT '原始转录文本',
     formatted_text LONGTEXT DEFAULT NULL COMMENT '格式化后的文本',
     error_log TEXT DEFAULT NULL COMMENT '错误日志',
     duration_seconds INT DEFAULT NULL COMMENT '音频时长（秒）',
+    source_format VARCHAR(128) DEFAULT NULL COMMENT '源媒体容器格式',
+    source_audio_codec VARCHAR(32) DEFAULT NULL COMMENT '源媒体音频编码',
+    source_video_codec VARCHAR(32) DEFAULT NULL COMMENT '源媒体视频编码，纯音频为空',
+    source_sample_rate INT DEFAULT NULL COMMENT '源媒体音频采样率',
+    source_channels INT DEFAULT NULL COMMENT '源媒体音频声道数',
+    content_hash CHAR(64) DEFAULT NULL COMMENT '上传文件 SHA-256',
+    audio_hash CHAR(64) DEFAULT NULL COMMENT '提取音频 SHA-256',
+    audio_object_key VARCHAR(512) DEFAULT NULL COMMENT '已上传到 OSS 的音频对象',
+    progress_percent INT DEFAULT NULL COMMENT '当前阶段进度（0-100）',
+    progress_ms BIGINT DEFAULT NULL COMMENT '当前阶段已处理到的媒体时间（毫秒）',
+    progress_speed DOUBLE DEFAULT NULL COMMENT '当前阶段处理速度（相对实时的倍数）',
+    last_completed_stage INT DEFAULT NULL COMMENT '最近完成的处理阶段（状态码），用于断点续跑',
     create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     finish_time DATETIME DEFAULT NULL COMMENT '完成时间',
+    lease_owner VARCHAR(64) DEFAULT NULL COMMENT '持有租约的处理节点',
+    lease_expire_time DATETIME DEFAULT NULL COMMENT '租约过期时间',
     INDEX idx_create_time (create_time),
     INDEX idx_task_status (task_status),
+    INDEX idx_task_lease (task_status, lease_expire_time),
     INDEX idx_user_id (user_id),
     CONSTRAINT fk_task_user FOREIGN KEY (user_id) REFERENCES t_user (id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='任务表';
 
+-- 4. 创建识别结果表（按内容哈希复用）
+CREATE TABLE IF NOT EXISTS t_media_result (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '结果ID',
+    media_hash CHAR(64) NOT NULL COMMENT '上传文件或提取音频的 SHA-256',
+    scope_user_id BIGINT NOT NULL DEFAULT 0 COMMENT '复用范围：用户ID，0 表示全局共享',
+    raw_text LONGTEXT DEFAULT NULL COMMENT '原始转录文本',
+    formatted_text LONGTEXT DEFAULT NULL COMMENT '格式化后的文本',
+    duration_seconds INT DEFAULT NULL COMMENT '音频时长（秒）',
+    source_task_id BIGINT DEFAULT NULL COMMENT '产生该结果的任务',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_media_result_hash (media_hash, scope_user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='识别结果表';
+
+-- 5. 创建识别耗时表（预测 NLS 轮询时机）
+CREATE TABLE IF NOT EXISTS t_stt_latency (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '记录ID',
+    task_id BIGINT DEFAULT NULL COMMENT '任务ID',
+    duration_seconds INT DEFAULT NULL COMMENT '媒体时长（秒）',
+    processing_ms BIGINT DEFAULT NULL COMMENT '提交到获得结果的耗时（毫秒）',
+    poll_count INT DEFAULT NULL COMMENT '查询次数',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='识别耗时表';
+
+-- 6. 创建转录分段表（转录进行中逐段展示部分结果）
+CREATE TABLE IF NOT EXISTS t_task_segment (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '分段ID',
+    task_id BIGINT NOT NULL COMMENT '任务ID',
+    seq INT NOT NULL COMMENT '分段序号，从 0 开始',
+    start_ms BIGINT NOT NULL COMMENT '分段在音频中的起始时间（毫秒）',
+    end_ms BIGINT NOT NULL COMMENT '分段在音频中的结束时间（毫秒）',
+    text TEXT DEFAULT NULL COMMENT '分段识别文本',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_task_segment_seq (task_id, seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='转录分段表';
+
+-- 7. 创建转写句子表（按时间 / 文本偏移查询，词级时间戳压缩存储）
+CREATE TABLE IF NOT EXISTS t_transcript_sentence (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '句子ID',
+    task_id BIGINT NOT NULL COMMENT '任务ID',
+    seq INT NOT NULL COMMENT '句子序号，从 0 开始',
+    begin_ms BIGINT NOT NULL COMMENT '开始时间（毫秒）',
+    end_ms BIGINT NOT NULL COMMENT '结束时间（毫秒）',
+    start_offset INT NOT NULL COMMENT '在全文中的起始字符偏移',
+    end_offset INT NOT NULL COMMENT '在全文中的结束字符偏移',
+    text TEXT DEFAULT NULL COMMENT '句子文本',
+    words BLOB DEFAULT NULL COMMENT '词级时间戳（变长整数编码）',
+    UNIQUE KEY uk_transcript_sentence_seq (task_id, seq),
+    INDEX idx_transcript_sentence_time (task_id, begin_ms),
+    INDEX idx_transcript_sentence_offset (task_id, start_offset)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='转写句子表';
+
+-- 8. 创建识别回调表（回调可投递到任意节点，结果经此表交给提交节点）
+CREATE TABLE IF NOT EXISTS t_stt_callback (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '记录ID',
+    nls_task_id VARCHAR(64) NOT NULL COMMENT 'NLS 录音文件识别 TaskId',
+    task_id BIGINT DEFAULT NULL COMMENT '任务ID',
+    callback_nonce CHAR(32) NOT NULL COMMENT '回调地址携带的 nonce',
+    result_body MEDIUMTEXT DEFAULT NULL COMMENT '回调请求体（与 GetTaskResult 响应相同）',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '提交时间',
+    complete_time DATETIME DEFAULT NULL COMMENT '收到回调时间',
+    UNIQUE KEY uk_stt_callback_nls_task (nls_task_id),
+    INDEX idx_stt_callback_create_time (create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='识别回调表';
+
+-- 9. 已有数据库升级（按需执行，新建库无需执行）
+-- 持久化任务队列租约
+-- ALTER TABLE t_task ADD COLUMN lease_owner VARCHAR(64) DEFAULT NULL COMMENT '持有租约的处理节点';
+-- ALTER TABLE t_task ADD COLUMN lease_expire_time DATETIME DEFAULT NULL COMMENT '租约过期时间';
+-- ALTER TABLE t_task ADD INDEX idx_task_lease (task_status, lease_expire_time);
+
+-- 阶段检查点
+-- ALTER TABLE t_task ADD COLUMN last_completed_stage INT DEFAULT NULL COMMENT '最近完成的处理阶段（状态码），用于断点续跑';
+
+-- 内容哈希去重（另需执行上方 t_media_result 建表语句）
+-- ALTER TABLE t_task ADD COLUMN content_hash CHAR(64) DEFAULT NULL COMMENT '上传文件 SHA-256';
+-- ALTER TABLE t_task ADD COLUMN audio_hash CHAR(64) DEFAULT NULL COMMENT '提取音频 SHA-256';
+
+-- 提取音频流式上传 OSS
+-- ALTER TABLE t_task ADD COLUMN audio_object_key VARCHAR(512) DEFAULT NULL COMMENT '已上传到 OSS 的音频对象';
+
+-- 阶段进度
+-- ALTER TABLE t_task ADD COLUMN progress_percent INT DEFAULT NULL COMMENT '当前阶段进度（0-100）';
+-- ALTER TABLE t_task ADD COLUMN progress_ms BIGINT DEFAULT NULL COMMENT '当前阶段已处理到的媒体时间（毫秒）';
+-- ALTER TABLE t_task ADD COLUMN progress_speed DOUBLE DEFAULT NULL COMMENT '当前阶段处理速度（相对实时的倍数）';
+
+-- 源媒体信息
+-- ALTER TABLE t_task ADD COLUMN source_format VARCHAR(128) DEFAULT NULL COMMENT '源媒体容器格式';
+-- ALTER TABLE t_task ADD COLUMN source_audio_codec VARCHAR(32) DEFAULT NULL COMMENT '源媒体音频编码';
+-- ALTER TABLE t_task ADD COLUMN source_video_codec VARCHAR(32) DEFAULT NULL COMMENT '源媒体视频编码，纯音频为空';
+-- ALTER TABLE t_task ADD COLUMN source_sample_rate INT DEFAULT NULL COMMENT '源媒体音频采样率';
+-- ALTER TABLE t_task ADD COLUMN source_channels INT DEFAULT NULL COMMENT '源媒体音频声道数';
+
+-- 识别回调跨节点送达：另需执行上方 t_stt_callback 建表语句
@@ -1,5 +1,9 @@
 package com.aviscribe;
 
+import com.aviscribe.pipeline.AdmissionProperties;
+import com.aviscribe.pipeline.DedupProperties;
+import com.aviscribe.pipeline.PipelineProperties;
+import com.aviscribe.pipeline.TaskQueueProperties;
 import com.aviscribe.security.JwtProperties;
 import com.aviscribe.security.RateLimitProperties;
 import org.mybatis.spring.annotation.MapperScan;
@@ -7,11 +11,14 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.aviscribe.mapper")
 @EnableAsync // 关键：开启异步支持
-@EnableConfigurationProperties({JwtProperties.class, RateLimitProperties.class})
+@EnableScheduling // 持久化任务队列的拉取、心跳与回收
+@EnableConfigurationProperties({JwtProperties.class, RateLimitProperties.class, PipelineProperties.class,
+        TaskQueueProperties.class, AdmissionProperties.class, DedupProperties.class})
 public class AviscribeBackendApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,51 @@
+package com.aviscribe.common.enums;
+
+import lombok.Getter;
+
+/**
+ * 提取音频使用的中间格式，均为 NLS 录音文件识别支持的格式（16kHz 单声道）。
+ * WAV 为无损 PCM，约 115MB/小时；MP3 / Opus 按语音码率压缩，体积约为 WAV 的十分之一。
+ */
+@Getter
+public enum AudioCodec {
+    WAV("wav", "pcm_s16le", "pcm_s16le", false),
+    MP3("mp3", "libmp3lame", "mp3", true),
+    OPUS("ogg", "libopus", "opus", true);
+
+    /**
+     * 文件扩展名，同时也是 ffmpeg / ffprobe 的容器格式名
+     */
+    private final String extension;
+    private final String encoder;
+    /**
+     * ffprobe 报告的编码名
+     */
+    private final String codecName;
+    private final boolean compressed;
+
+    AudioCodec(String extension, String encoder, String codecName, boolean compressed) {
+        this.extension = extension;
+        this.encoder = encoder;
+        this.codecName = codecName;
+        this.compressed = compressed;
+    }
+
+    /**
+     * 探测到的容器与音频编码是否就是该中间格式。
+     */
+    public boolean matches(String formatName, String audioCodec) {
+        return extension.equals(formatName) && codecName.equals(audioCodec);
+    }
+
+    public static AudioCodec fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return WAV;
+        }
+        for (AudioCodec codec : values()) {
+            if (codec.name().equalsIgnoreCase(value)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("不支持的音频格式: " + value + "，可选 wav / mp3 / opus");
+    }
+}
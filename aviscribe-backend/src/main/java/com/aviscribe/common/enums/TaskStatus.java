@@ -10,7 +10,8 @@ public enum TaskStatus {
     TRANSCRIBING(4, "转录中"),
     FORMATTING(5, "排版中"),
     COMPLETED(6, "已完成"),
-    FAILED(7, "失败");
+    FAILED(7, "失败"),
+    CANCELLED(8, "已取消");
 
     private final int code;
     private final String description;
@@ -0,0 +1,21 @@
+package com.aviscribe.common.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 系统或用户配额饱和时拒绝新任务：429 表示用户自身排队过多，503 表示系统整体繁忙。
+ * 由 {@link GlobalExceptionHandler} 转换为带 Retry-After 头的响应。
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(HttpStatus status, String message, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
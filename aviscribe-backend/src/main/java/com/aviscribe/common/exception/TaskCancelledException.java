@@ -0,0 +1,11 @@
+package com.aviscribe.common.exception;
+
+/**
+ * 任务已被取消，正在执行的阶段应尽快退出。
+ */
+public class TaskCancelledException extends RuntimeException {
+
+    public TaskCancelledException(Long taskId) {
+        super("任务已取消: " + taskId);
+    }
+}
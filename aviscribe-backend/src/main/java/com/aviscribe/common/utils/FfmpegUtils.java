@@ -1,17 +1,35 @@
 package com.aviscribe.common.utils;
 
+import com.aviscribe.common.enums.AudioCodec;
+import com.aviscribe.pipeline.TaskCancellation;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
 public class FfmpegUtils {
@@ -20,13 +38,141 @@ public class FfmpegUtils {
     @Value("${aviscribe.ffmpeg.path:ffmpeg}")
     private String ffmpegPath;
 
-    @Value("${aviscribe.ffprobe.path:ffprobe}")
-    private String ffprobePath;
+    /**
+     * 同时运行的 ffmpeg 进程上限，0 表示由 CPU 预算与每进程线程数决定。
+     * 阶段运行在虚拟线程上时不再受线程池大小约束，由此显式限制 CPU 密集的转码并发。
+     */
+    @Value("${aviscribe.ffmpeg.max-concurrent:0}")
+    private int maxConcurrent;
+
+    /**
+     * 为 Tomcat 与其他线程保留、不分给 ffmpeg 的核数。
+     */
+    @Value("${aviscribe.ffmpeg.reserved-cores:1}")
+    private int reservedCores;
+
+    /**
+     * 每个提取进程的线程数（-threads），0 表示自动：设置了 max-concurrent 时平分 CPU 预算，否则为 2。
+     */
+    @Value("${aviscribe.ffmpeg.threads-per-process:0}")
+    private int threadsPerProcess;
+
+    /**
+     * ffmpeg 进程的 nice 值（1-19，越大优先级越低），0 表示不调整；仅类 Unix 系统生效。
+     */
+    @Value("${aviscribe.ffmpeg.nice:10}")
+    private int niceness;
+
+    /**
+     * 提取音频的中间格式：wav（PCM，默认）、mp3 或 opus（ogg 封装），后两者按 audio-bitrate-kbps 压缩。
+     */
+    @Value("${aviscribe.ffmpeg.audio-codec:wav}")
+    private String audioCodecName;
+
+    @Value("${aviscribe.ffmpeg.audio-bitrate-kbps:32}")
+    private int audioBitrateKbps;
+
+    /**
+     * 进度（out_time）持续该秒数没有前进时视为卡死并结束进程，0 表示不检测。
+     */
+    @Value("${aviscribe.ffmpeg.stall-timeout-seconds:120}")
+    private long stallTimeoutSeconds;
+
+    /**
+     * 语音识别可用的压缩码率范围（kbps）：过低会明显降低识别准确率。
+     */
+    private static final int MIN_SPEECH_BITRATE_KBPS = 16;
+    private static final int MAX_SPEECH_BITRATE_KBPS = 128;
+
+    private static final Pattern SILENCE_START = Pattern.compile("silence_start:\\s*(-?[0-9.]+)");
+    private static final Pattern SILENCE_END = Pattern.compile("silence_end:\\s*(-?[0-9.]+)");
+    /**
+     * -progress 输出为逐行的 key=value，以 progress=continue/end 结束一组。
+     */
+    private static final Pattern PROGRESS_LINE = Pattern.compile("^(\\w+)=(\\S*)$");
 
     /**
-     * 使用 ffmpeg 从视频中抽取音频（例如生成 16kHz 单声道 wav）
+     * 进程数上限与 CPU 预算（按线程数计）两道许可，均为公平信号量，超出的进程按到达顺序排队。
      */
-    public boolean extractAudio(String inputVideoPath, String outputAudioPath) {
+    private Semaphore processPermits;
+    private Semaphore cpuPermits;
+    private int cpuBudget;
+    private int processThreads;
+    private List<String> launcher = List.of();
+    private final AtomicInteger queued = new AtomicInteger();
+    private AudioCodec audioCodec;
+    private ScheduledExecutorService watchdog;
+    private final Set<ProgressTracker> running = ConcurrentHashMap.newKeySet();
+
+    private final TaskCancellation taskCancellation;
+    private final MeterRegistry meterRegistry;
+
+    public FfmpegUtils(TaskCancellation taskCancellation, MeterRegistry meterRegistry) {
+        this.taskCancellation = taskCancellation;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void initLimiter() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        cpuBudget = Math.max(1, cores - Math.max(0, reservedCores));
+        if (threadsPerProcess > 0) {
+            processThreads = Math.min(threadsPerProcess, cpuBudget);
+        } else if (maxConcurrent > 0) {
+            processThreads = Math.max(1, cpuBudget / maxConcurrent);
+        } else {
+            // 音频解码与编码基本是单线程的，多给线程只会与其他进程争抢
+            processThreads = Math.min(2, cpuBudget);
+        }
+        this.processPermits = new Semaphore(maxConcurrent > 0 ? maxConcurrent : cpuBudget, true);
+        this.cpuPermits = new Semaphore(cpuBudget, true);
+        this.launcher = priorityLauncher();
+        log.info("ffmpeg governor: {} of {} cores, {} threads per extraction, max {} processes, nice {}",
+                cpuBudget, cores, processThreads, processPermits.availablePermits(),
+                launcher.isEmpty() ? "off" : launcher.get(launcher.size() - 1));
+        Gauge.builder("aviscribe.ffmpeg.queued", queued, AtomicInteger::get)
+                .description("Ffmpeg processes waiting for a CPU slot")
+                .register(meterRegistry);
+        Gauge.builder("aviscribe.ffmpeg.cpu.used", this, self -> self.cpuBudget - self.cpuPermits.availablePermits())
+                .description("Ffmpeg threads currently granted")
+                .register(meterRegistry);
+
+        this.audioCodec = AudioCodec.fromString(audioCodecName);
+        if (audioCodec.isCompressed()
+                && (audioBitrateKbps < MIN_SPEECH_BITRATE_KBPS || audioBitrateKbps > MAX_SPEECH_BITRATE_KBPS)) {
+            throw new IllegalArgumentException("aviscribe.ffmpeg.audio-bitrate-kbps 需在 "
+                    + MIN_SPEECH_BITRATE_KBPS + "-" + MAX_SPEECH_BITRATE_KBPS + " 之间: " + audioBitrateKbps);
+        }
+        log.info("Audio intermediate format: {}{}", audioCodec,
+                audioCodec.isCompressed() ? " @ " + audioBitrateKbps + "kbps" : "");
+        if (stallTimeoutSeconds > 0) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ffmpeg-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long checkSeconds = Math.max(1, Math.min(5, stallTimeoutSeconds));
+            watchdog.scheduleWithFixedDelay(this::killStalled, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    public AudioCodec getAudioCodec() {
+        return audioCodec;
+    }
+
+    /**
+     * 使用 ffmpeg 从视频中抽取 16kHz 单声道音频，格式由 aviscribe.ffmpeg.audio-codec 决定（输出路径扩展名需与之对应）
+     *
+     * @param onProgress 接收处理进度，可为 null
+     */
+    public boolean extractAudio(String inputVideoPath, String outputAudioPath, Consumer<Progress> onProgress) {
         log.info("Starting audio extraction for: {} -> {}", inputVideoPath, outputAudioPath);
 
         List<String> command = new ArrayList<>();
@@ -35,106 +181,407 @@ public class FfmpegUtils {
         command.add("-i");
         command.add(inputVideoPath);
         command.add("-vn"); // 不要视频
+        addAudioEncodeOptions(command);
+        command.add(outputAudioPath);
+
+        boolean success = runFfmpeg(command, line -> log.debug("ffmpeg> {}", line), onProgress, processThreads);
+        if (success) {
+            log.info("Audio extraction completed successfully.");
+        }
+        return success;
+    }
+
+    /**
+     * 抽取音频并写到 ffmpeg 标准输出，由 consumer 在当前线程边读边处理（如直接上传），无需先落盘。
+     * 仅适用于可流式封装的压缩格式（mp3 / ogg）；wav 的文件头需要在结尾回填长度，不能用于管道输出。
+     *
+     * @return ffmpeg 是否成功结束；consumer 抛出的异常原样抛出
+     */
+    public boolean extractAudioStream(String inputVideoPath, Consumer<Progress> onProgress,
+                                      StreamConsumer consumer) throws Exception {
+        if (!audioCodec.isCompressed()) {
+            throw new IllegalStateException("WAV 不支持流式输出");
+        }
+        log.info("Starting streamed audio extraction for: {}", inputVideoPath);
+        List<String> command = new ArrayList<>();
+        command.add(ffmpegPath);
+        command.add("-i");
+        command.add(inputVideoPath);
+        command.add("-vn");
+        addAudioEncodeOptions(command);
+        command.add("-f");
+        command.add(audioCodec.getExtension());
+        command.add("pipe:1");
+
+        // stdout 用于音频数据，进度与日志一起写到 stderr
+        ProcessBuilder pb = new ProcessBuilder(buildCommand(command, processThreads, "pipe:2"));
+        boolean acquired = false;
+        Process process = null;
+        ProgressTracker tracker = null;
+        try {
+            acquire(processThreads);
+            acquired = true;
+            process = taskCancellation.track(pb.start());
+            tracker = startTracking(process, onProgress);
+            // stdout 用于音频数据，stderr 的日志需另起线程读取，避免缓冲区写满后 ffmpeg 阻塞
+            InputStream stderr = process.getErrorStream();
+            ProgressTracker stderrTracker = tracker;
+            Thread stderrReader = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!stderrTracker.accept(line)) {
+                            log.debug("ffmpeg> {}", line);
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // 进程被结束
+                }
+            }, "ffmpeg-stderr");
+            stderrReader.setDaemon(true);
+            stderrReader.start();
+            try (InputStream stdout = process.getInputStream()) {
+                consumer.accept(stdout);
+            } catch (Exception e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            int exitCode = process.waitFor();
+            stderrReader.join();
+            if (exitCode != 0) {
+                logExit(exitCode, tracker);
+                return false;
+            }
+            log.info("Streamed audio extraction completed successfully.");
+            return true;
+        } finally {
+            if (tracker != null) {
+                running.remove(tracker);
+            }
+            if (process != null) {
+                taskCancellation.untrack(process);
+            }
+            if (acquired) {
+                release(processThreads);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface StreamConsumer {
+        void accept(InputStream stdout) throws Exception;
+    }
+
+    /**
+     * 16kHz 单声道，按配置的中间格式编码。
+     */
+    private void addAudioEncodeOptions(List<String> command) {
         command.add("-acodec");
-        command.add("pcm_s16le"); // 原始 PCM
+        command.add(audioCodec.getEncoder());
+        if (audioCodec.isCompressed()) {
+            command.add("-b:a");
+            command.add(audioBitrateKbps + "k");
+        }
+        if (audioCodec == AudioCodec.OPUS) {
+            command.add("-application");
+            command.add("voip"); // 针对语音优化
+        }
         command.add("-ar");
         command.add("16000"); // 16k 采样率
         command.add("-ac");
         command.add("1"); // 单声道
-        command.add(outputAudioPath);
+        command.add("-threads");
+        command.add(String.valueOf(processThreads)); // 编码线程
+    }
+
+    /**
+     * 使用 silencedetect 检测音频中的静音区间，返回 [开始秒, 结束秒] 列表；检测失败返回 null。
+     */
+    public List<double[]> detectSilences(String audioPath, int noiseDb, double minSilenceSeconds) {
+        List<String> command = List.of(ffmpegPath, "-hide_banner", "-nostats",
+                "-i", audioPath,
+                "-af", "silencedetect=noise=" + noiseDb + "dB:d=" + minSilenceSeconds,
+                "-f", "null", "-");
+        List<double[]> silences = new ArrayList<>();
+        double[] open = new double[1];
+        open[0] = -1;
+        boolean success = runFfmpeg(command, line -> {
+            Matcher start = SILENCE_START.matcher(line);
+            if (start.find()) {
+                open[0] = Double.parseDouble(start.group(1));
+                return;
+            }
+            Matcher end = SILENCE_END.matcher(line);
+            if (end.find() && open[0] >= 0) {
+                silences.add(new double[]{open[0], Double.parseDouble(end.group(1))});
+                open[0] = -1;
+            }
+        }, null, 1);
+        return success ? silences : null;
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(command);
+    /**
+     * 截取 [startSeconds, startSeconds + durationSeconds) 的音频片段；durationSeconds 不大于 0 时截取到末尾。
+     */
+    public boolean cutSegment(String audioPath, String outputPath, double startSeconds, double durationSeconds) {
+        List<String> command = new ArrayList<>();
+        command.add(ffmpegPath);
+        command.add("-y");
+        command.add("-ss");
+        command.add(String.valueOf(startSeconds));
+        if (durationSeconds > 0) {
+            command.add("-t");
+            command.add(String.valueOf(durationSeconds));
+        }
+        command.add("-i");
+        command.add(audioPath);
+        command.add("-c");
+        command.add("copy"); // 源文件已是目标格式，直接复制（压缩格式按帧切分）
+        command.add(outputPath);
+        return runFfmpeg(command, line -> log.debug("ffmpeg> {}", line), null, 1);
+    }
+
+    /**
+     * 在并发许可内运行 ffmpeg，逐行处理合并后的输出；进程登记到当前任务，取消时由 TaskCancellation 强制结束。
+     * 进度（-progress）行交给 onProgress（可为 null），不再传给 onLine；进度长时间不前进时由看门狗结束进程。
+     *
+     * @param threads 进程可用的线程数，同时按该数量占用 CPU 预算
+     */
+    private boolean runFfmpeg(List<String> command, Consumer<String> onLine, Consumer<Progress> onProgress, int threads) {
+        ProcessBuilder pb = new ProcessBuilder(buildCommand(command, threads, "pipe:1"));
         pb.redirectErrorStream(true); // 将 stderr 合并到 stdout
 
+        boolean acquired = false;
+        Process process = null;
+        ProgressTracker tracker = null;
         try {
-            Process process = pb.start();
-            // 读取输出日志，方便调试
-            logProcessOutput(process.getInputStream());
+            acquire(threads);
+            acquired = true;
+            process = taskCancellation.track(pb.start());
+            tracker = startTracking(process, onProgress);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!tracker.accept(line)) {
+                        onLine.accept(line);
+                    }
+                }
+            }
 
             int exitCode = process.waitFor();
             if (exitCode != 0) {
-                log.error("ffmpeg exited with code {}", exitCode);
+                logExit(exitCode, tracker);
                 return false;
             }
-            log.info("Audio extraction completed successfully.");
             return true;
         } catch (IOException | InterruptedException e) {
             log.error("Error running ffmpeg", e);
             Thread.currentThread().interrupt();
             return false;
+        } finally {
+            if (tracker != null) {
+                running.remove(tracker);
+            }
+            if (process != null) {
+                taskCancellation.untrack(process);
+            }
+            if (acquired) {
+                release(threads);
+            }
         }
     }
 
-    private void logProcessOutput(InputStream inputStream) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.debug("ffmpeg> {}", line);
+    /**
+     * 在 ffmpeg 参数前加上降低优先级的启动器，并统一加入进度输出与输入解码线程数。
+     */
+    private List<String> buildCommand(List<String> command, int threads, String progressTarget) {
+        List<String> full = new ArrayList<>(launcher);
+        full.add(command.get(0));
+        full.add("-progress");
+        full.add(progressTarget);
+        full.add("-nostats");
+        full.add("-threads");
+        full.add(String.valueOf(threads)); // 作用于第一个输入的解码
+        full.addAll(command.subList(1, command.size()));
+        return full;
+    }
+
+    /**
+     * 先取进程许可，再按线程数取 CPU 预算；等待期间计入排队数。
+     */
+    private void acquire(int threads) throws InterruptedException {
+        queued.incrementAndGet();
+        try {
+            processPermits.acquire();
+            try {
+                cpuPermits.acquire(threads);
+            } catch (InterruptedException e) {
+                processPermits.release();
+                throw e;
             }
+        } finally {
+            queued.decrementAndGet();
         }
     }
 
+    private void release(int threads) {
+        cpuPermits.release(threads);
+        processPermits.release();
+    }
+
     /**
-     * 通过 ffprobe 读取媒体总时长（秒）
+     * 类 Unix 系统上以 nice 启动 ffmpeg（nice 直接 exec，进程号不变，取消与看门狗照常生效）。
      */
-    public Integer getMediaDurationSeconds(String mediaPath) {
-        if (mediaPath == null || mediaPath.isBlank()) {
-            return null;
+    private List<String> priorityLauncher() {
+        if (niceness <= 0) {
+            return List.of();
+        }
+        if (System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows")) {
+            log.info("ffmpeg priority adjustment is not supported on Windows, ignoring aviscribe.ffmpeg.nice");
+            return List.of();
         }
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String dir : path.split(File.pathSeparator)) {
+                File nice = new File(dir, "nice");
+                if (nice.canExecute()) {
+                    return List.of(nice.getPath(), "-n", String.valueOf(Math.min(19, niceness)));
+                }
+            }
+        }
+        log.warn("nice not found on PATH, ffmpeg runs at normal priority");
+        return List.of();
+    }
 
-        List<String> command = new ArrayList<>();
-        command.add(ffprobePath);
-        command.add("-v");
-        command.add("error");
-        command.add("-show_entries");
-        command.add("format=duration");
-        command.add("-of");
-        command.add("default=noprint_wrappers=1:nokey=1");
-        command.add(mediaPath);
-
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
+    private ProgressTracker startTracking(Process process, Consumer<Progress> onProgress) {
+        ProgressTracker tracker = new ProgressTracker(process, onProgress);
+        running.add(tracker);
+        return tracker;
+    }
 
-        try {
-            Process process = pb.start();
-            List<String> lines = collectProcessOutput(process.getInputStream());
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                log.warn("ffprobe exited with code {} when probing {}", exitCode, mediaPath);
-                return null;
+    private void logExit(int exitCode, ProgressTracker tracker) {
+        if (tracker != null && tracker.stalled) {
+            log.error("ffmpeg {} 秒无进度，已终止 (exit code {})", stallTimeoutSeconds, exitCode);
+        } else {
+            log.error("ffmpeg exited with code {}", exitCode);
+        }
+    }
+
+    /**
+     * 看门狗：结束 out_time 超过 stall-timeout-seconds 未前进的进程（如读取损坏文件或网络挂载卡住）。
+     */
+    private void killStalled() {
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(stallTimeoutSeconds);
+        long now = System.nanoTime();
+        for (ProgressTracker tracker : running) {
+            if (!tracker.stalled && now - tracker.lastAdvanceNanos > timeoutNanos) {
+                tracker.stalled = true;
+                log.warn("ffmpeg (pid {}) 已 {} 秒无进度，强制结束", tracker.process.pid(), stallTimeoutSeconds);
+                tracker.process.descendants().forEach(ProcessHandle::destroyForcibly);
+                tracker.process.destroyForcibly();
             }
-            for (String line : lines) {
-                if (line == null) {
-                    continue;
+        }
+    }
+
+    /**
+     * ffmpeg 的处理进度。
+     *
+     * @param outTimeMs 已输出到的媒体时间（毫秒）
+     * @param speed     处理速度，相对实时的倍数；未知时为 0
+     */
+    public record Progress(long outTimeMs, double speed) {
+    }
+
+    /**
+     * 解析 -progress 输出的 key=value 行，每组结束（progress=...）时回调一次，并记录进度最近一次前进的时间。
+     */
+    private static final class ProgressTracker {
+        private final Process process;
+        private final Consumer<Progress> listener;
+        private long outTimeUs = -1;
+        private long reportedUs = -1;
+        private double speed;
+        private volatile long lastAdvanceNanos = System.nanoTime();
+        private volatile boolean stalled;
+
+        private ProgressTracker(Process process, Consumer<Progress> listener) {
+            this.process = process;
+            this.listener = listener;
+        }
+
+        /**
+         * @return 该行是否为进度行
+         */
+        boolean accept(String line) {
+            Matcher matcher = PROGRESS_LINE.matcher(line);
+            if (!matcher.matches()) {
+                return false;
+            }
+            String value = matcher.group(2);
+            switch (matcher.group(1)) {
+                // 旧版本的 out_time_ms 实际单位也是微秒
+                case "out_time_us", "out_time_ms" -> outTimeUs = parseLong(value, outTimeUs);
+                case "out_time" -> {
+                    if (outTimeUs < 0) {
+                        outTimeUs = parseClock(value);
+                    }
                 }
-                String trimmed = line.trim();
-                if (trimmed.isEmpty()) {
-                    continue;
+                case "speed" -> speed = parseSpeed(value);
+                case "progress" -> endOfBlock();
+                default -> {
+                    // frame、bitrate、total_size 等不需要
                 }
-                try {
-                    double seconds = Double.parseDouble(trimmed);
-                    return (int) Math.round(seconds);
-                } catch (NumberFormatException ex) {
-                    log.debug("Unable to parse ffprobe output '{}' for {}", trimmed, mediaPath);
+            }
+            return true;
+        }
+
+        private void endOfBlock() {
+            if (outTimeUs > reportedUs) {
+                reportedUs = outTimeUs;
+                lastAdvanceNanos = System.nanoTime();
+                if (listener != null) {
+                    try {
+                        listener.accept(new Progress(outTimeUs / 1000, speed));
+                    } catch (Exception e) {
+                        log.debug("Progress listener failed: {}", e.getMessage());
+                    }
                 }
             }
-        } catch (IOException e) {
-            log.error("Failed to probe media duration for {}", mediaPath, e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("ffprobe duration process interrupted for {}", mediaPath, e);
+            outTimeUs = -1;
+        }
+
+        private static long parseLong(String value, long fallback) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return fallback; // N/A
+            }
+        }
+
+        /**
+         * HH:MM:SS.micro 转为微秒，无法解析时返回 -1。
+         */
+        private static long parseClock(String value) {
+            String[] parts = value.split(":");
+            if (parts.length != 3) {
+                return -1;
+            }
+            try {
+                double seconds = Integer.parseInt(parts[0]) * 3600.0 + Integer.parseInt(parts[1]) * 60.0
+                        + Double.parseDouble(parts[2]);
+                return (long) (seconds * 1_000_000);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
         }
-        return null;
-    }
 
-    private List<String> collectProcessOutput(InputStream inputStream) throws IOException {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lines.add(line);
+        private static double parseSpeed(String value) {
+            String number = value.endsWith("x") ? value.substring(0, value.length() - 1) : value;
+            try {
+                return Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                return 0;
             }
         }
-        return lines;
     }
-}
\ No newline at end of file
+}
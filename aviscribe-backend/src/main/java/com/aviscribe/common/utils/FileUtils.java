@@ -1,6 +1,7 @@
 package com.aviscribe.common.utils;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -49,4 +50,14 @@ public class FileUtils {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 计算文件内容的 SHA-256（十六进制），文件不存在时返回 null。
+     */
+    public String sha256(String path) {
+        if (path == null || path.isEmpty() || !Files.isRegularFile(Paths.get(path))) {
+            return null;
+        }
+        return DigestUtil.sha256Hex(Paths.get(path).toFile());
+    }
+}
@@ -0,0 +1,47 @@
+package com.aviscribe.common.utils;
+
+public final class TextUtils {
+
+    private TextUtils() {
+    }
+
+    public static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    /**
+     * 从排版后的 Markdown 中提取标题：优先取第一个标题行，否则取第一个非空行。
+     */
+    public static String extractTitle(String formattedText) {
+        if (formattedText == null) {
+            return null;
+        }
+        String[] lines = formattedText.split("\\r?\\n");
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.startsWith("#")) {
+                String heading = trimmed.replaceFirst("^#+\\s*", "").trim();
+                if (!heading.isEmpty()) {
+                    return truncate(heading, 200);
+                }
+            }
+        }
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                return truncate(trimmed, 200);
+            }
+        }
+        return null;
+    }
+
+    public static String truncate(String input, int maxLength) {
+        if (input == null || input.length() <= maxLength) {
+            return input;
+        }
+        return input.substring(0, maxLength);
+    }
+}
@@ -0,0 +1,44 @@
+package com.aviscribe.common.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程（JDK 21+）的反射封装。项目以 Java 17 编译，运行在 21+ 上时才能启用虚拟线程模式。
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建以 namePrefix + 序号命名的虚拟线程工厂。
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("当前 JDK 不支持虚拟线程（需要 JDK 21+）", e);
+        }
+    }
+
+    /**
+     * 每个任务一个虚拟线程的执行器。
+     */
+    public static Executor newThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory factory = threadFactory(namePrefix);
+        return command -> factory.newThread(command).start();
+    }
+}
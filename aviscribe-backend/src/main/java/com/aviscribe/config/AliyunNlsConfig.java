@@ -0,0 +1,60 @@
+package com.aviscribe.config;
+
+import com.aliyuncs.DefaultAcsClient;
+import com.aliyuncs.IAcsClient;
+import com.aliyuncs.auth.AlibabaCloudCredentialsProvider;
+import com.aliyuncs.auth.BasicCredentials;
+import com.aliyuncs.auth.InstanceProfileCredentialsProvider;
+import com.aliyuncs.auth.StaticCredentialsProvider;
+import com.aliyuncs.http.HttpClientConfig;
+import com.aliyuncs.profile.DefaultProfile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * 录音文件识别共用的 IAcsClient：线程安全，内部连接池保持长连接，所有任务的提交与轮询复用同一组连接。
+ */
+@Configuration
+@Slf4j
+public class AliyunNlsConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public IAcsClient nlsAcsClient(@Value("${aviscribe.stt.region-id:cn-shanghai}") String regionId,
+                                   @Value("${aviscribe.stt.access-key-id:}") String accessKeyId,
+                                   @Value("${aviscribe.stt.access-key-secret:}") String accessKeySecret,
+                                   @Value("${aviscribe.stt.ecs-ram-role:}") String ecsRamRole,
+                                   @Value("${aviscribe.stt.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+                                   @Value("${aviscribe.stt.http.read-timeout-ms:15000}") long readTimeoutMs,
+                                   @Value("${aviscribe.stt.http.max-connections:64}") int maxConnections,
+                                   @Value("${aviscribe.stt.http.keep-alive-ms:60000}") long keepAliveMs) {
+        HttpClientConfig clientConfig = HttpClientConfig.getDefault();
+        clientConfig.setConnectionTimeoutMillis(connectTimeoutMs);
+        clientConfig.setReadTimeoutMillis(readTimeoutMs);
+        // 请求都发往同一个 filetrans 域名，单主机连接数即整体上限
+        clientConfig.setMaxRequests(maxConnections);
+        clientConfig.setMaxRequestsPerHost(maxConnections);
+        clientConfig.setMaxIdleConnections(maxConnections);
+        clientConfig.setKeepAliveDurationMillis(keepAliveMs);
+
+        DefaultProfile profile = DefaultProfile.getProfile(regionId);
+        profile.setHttpClientConfig(clientConfig);
+        return new DefaultAcsClient(profile, credentialsProvider(accessKeyId, accessKeySecret, ecsRamRole));
+    }
+
+    /**
+     * 配置了 ECS RAM 角色时使用实例元数据中的 STS 临时凭证（到期前自动刷新），否则使用固定的 AccessKey。
+     */
+    private AlibabaCloudCredentialsProvider credentialsProvider(String accessKeyId, String accessKeySecret, String ecsRamRole) {
+        if (StringUtils.hasText(ecsRamRole)) {
+            log.info("[STT] 使用 ECS RAM 角色 {} 的临时凭证", ecsRamRole);
+            return new InstanceProfileCredentialsProvider(ecsRamRole);
+        }
+        if (!StringUtils.hasText(accessKeyId)) {
+            log.warn("[STT] 未配置 AccessKey，语音识别调用将失败");
+        }
+        return new StaticCredentialsProvider(new BasicCredentials(accessKeyId, accessKeySecret));
+    }
+}
@@ -1,5 +1,6 @@
 package com.aviscribe.config;
 
+import com.aviscribe.common.enums.UserRole;
 import com.aviscribe.security.AuthRateLimitFilter;
 import com.aviscribe.security.JwtAuthenticationFilter;
 import com.aviscribe.security.RestAccessDeniedHandler;
@@ -40,7 +41,9 @@ public class SecurityConfig {
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(registry -> registry
                         .requestMatchers("/v1/auth/**").permitAll()
-                        .requestMatchers(HttpMethod.GET, "/health", "/actuator/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/health", "/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole(UserRole.ADMIN.name())
+                        .requestMatchers(HttpMethod.POST, "/v1/stt/callback").permitAll() // 阿里云回调，接口内校验签名
                         .anyRequest().authenticated())
                 .exceptionHandling(ex -> ex
                     .authenticationEntryPoint(authenticationEntryPoint)
@@ -1,32 +1,92 @@
 package com.aviscribe.config;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.aviscribe.common.utils.VirtualThreads;
+import com.aviscribe.pipeline.PipelineProperties;
+import com.aviscribe.pipeline.PipelineStage;
+import com.aviscribe.pipeline.PlatformStageLane;
+import com.aviscribe.pipeline.StageExecutors;
+import com.aviscribe.pipeline.StageLane;
+import com.aviscribe.pipeline.VirtualStageLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import java.util.concurrent.Executor;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class ThreadPoolConfig {
 
-    @Value("${spring.task.execution.pool.core-size}")
-    private int coreSize;
-    @Value("${spring.task.execution.pool.max-size}")
-    private int maxSize;
-    @Value("${spring.task.execution.pool.queue-capacity}")
-    private int queueCapacity;
+    private static final Logger log = LoggerFactory.getLogger(ThreadPoolConfig.class);
 
-    @Bean("taskExecutor") // 对应 @Async("taskExecutor")
-    public Executor taskExecutor() {
+    /**
+     * 每个流水线阶段一个独立执行通道（见 aviscribe.pipeline.*）
+     */
+    @Bean
+    public StageExecutors stageExecutors(PipelineProperties properties, MeterRegistry meterRegistry) {
+        boolean virtual = useVirtualThreads(properties);
+        Map<PipelineStage, StageLane> lanes = new EnumMap<>(PipelineStage.class);
+        for (PipelineStage stage : PipelineStage.values()) {
+            PipelineProperties.StagePool pool = properties.poolFor(stage);
+            lanes.put(stage, virtual ? buildVirtualLane(stage, pool) : buildPlatformLane(stage, pool));
+        }
+        log.info("[Pipeline] 阶段执行模式: {}", virtual ? "virtual" : "platform");
+        return new StageExecutors(lanes, meterRegistry);
+    }
+
+    /**
+     * virtual 模式下 Tomcat 请求处理同样运行在虚拟线程上
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "aviscribe.pipeline", name = "execution-mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (VirtualThreads.isSupported()) {
+                protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("aviscribe-http-"));
+            }
+        };
+    }
+
+    private boolean useVirtualThreads(PipelineProperties properties) {
+        if (properties.getExecutionMode() != PipelineProperties.ExecutionMode.VIRTUAL) {
+            return false;
+        }
+        if (!VirtualThreads.isSupported()) {
+            log.warn("[Pipeline] 已配置 virtual 执行模式，但当前 JDK {} 不支持虚拟线程，回退为 platform",
+                    Runtime.version());
+            return false;
+        }
+        return true;
+    }
+
+    private StageLane buildVirtualLane(PipelineStage stage, PipelineProperties.StagePool pool) {
+        return new VirtualStageLane(stage.getKey(),
+                VirtualThreads.newThreadPerTaskExecutor("aviscribe-" + stage.getKey() + "-v-"),
+                resolveSize(pool.getVirtualMaxConcurrent()),
+                pool.getQueueCapacity());
+    }
+
+    private StageLane buildPlatformLane(PipelineStage stage, PipelineProperties.StagePool pool) {
+        int coreSize = resolveSize(pool.getCoreSize());
+        int maxSize = Math.max(coreSize, resolveSize(pool.getMaxSize()));
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(coreSize);
         executor.setMaxPoolSize(maxSize);
-        executor.setQueueCapacity(queueCapacity);
-        executor.setThreadNamePrefix("aviscribe-task-");
-        // 拒绝策略：调用者运行
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setQueueCapacity(Math.max(0, pool.getQueueCapacity()));
+        executor.setThreadNamePrefix("aviscribe-" + stage.getKey() + "-");
+        // 拒绝策略：直接拒绝，由流水线将任务退回持久化队列；不在调用方线程上执行阶段工作
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
         executor.initialize();
-        return executor;
+        return new PlatformStageLane(executor);
+    }
+
+    private int resolveSize(int configured) {
+        // 0 或负数表示按 CPU 核数
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
     }
-}
\ No newline at end of file
+}
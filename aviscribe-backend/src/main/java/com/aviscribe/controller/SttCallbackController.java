@@ -0,0 +1,27 @@
+package com.aviscribe.controller;
+
+import com.aviscribe.service.SpeechToTextService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * NLS 录音文件识别完成回调。由阿里云调用，无需登录，依靠回调地址中的签名校验来源。
+ */
+@RestController
+@RequestMapping("/v1/stt")
+public class SttCallbackController {
+
+    private final SpeechToTextService speechToTextService;
+
+    public SttCallbackController(SpeechToTextService speechToTextService) {
+        this.speechToTextService = speechToTextService;
+    }
+
+    @PostMapping("/callback")
+    public ResponseEntity<Void> callback(@RequestParam String nonce,
+                                         @RequestParam String sig,
+                                         @RequestBody String body) {
+        speechToTextService.handleCallback(nonce, sig, body);
+        return ResponseEntity.ok().build();
+    }
+}
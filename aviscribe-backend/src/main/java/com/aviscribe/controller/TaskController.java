@@ -1,7 +1,13 @@
 package com.aviscribe.controller;
 
+import com.aviscribe.common.utils.SecurityUtils;
+import com.aviscribe.dto.PartialTranscriptDTO;
+import com.aviscribe.dto.RetryTasksRequest;
 import com.aviscribe.dto.TaskInfoDTO;
+import com.aviscribe.dto.TranscriptSentenceDTO;
 import com.aviscribe.dto.UpdateTaskNameRequest;
+import com.aviscribe.pipeline.AdmissionController;
+import com.aviscribe.pipeline.TaskDispatcher;
 import com.aviscribe.service.TaskService;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.springframework.data.domain.Pageable;
@@ -10,15 +16,23 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/v1/task")
 public class TaskController {
 
     private final TaskService taskService;
+    private final TaskDispatcher taskDispatcher;
+    private final AdmissionController admissionController;
 
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService,
+                          TaskDispatcher taskDispatcher,
+                          AdmissionController admissionController) {
         this.taskService = taskService;
+        this.taskDispatcher = taskDispatcher;
+        this.admissionController = admissionController;
     }
 
     @GetMapping("/{id}")
@@ -30,6 +44,43 @@ public class TaskController {
         return ResponseEntity.ok(taskInfo);
     }
 
+    /**
+     * 转录进行中已完成的分段文本，afterSeq 为客户端已收到的最后一个分段序号（首次请求传 -1 或不传）。
+     */
+    @GetMapping("/{id}/partial")
+    public ResponseEntity<PartialTranscriptDTO> getPartialTranscript(@PathVariable Long id,
+                                                                     @RequestParam(defaultValue = "-1") int afterSeq) {
+        PartialTranscriptDTO partial = taskService.getPartialTranscript(id, afterSeq);
+        if (partial == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(partial);
+    }
+
+    /**
+     * 按时间范围（毫秒）或文本偏移范围查询句子，words=true 时附带范围内的词级时间戳。
+     * 同时给出两种范围时按文本偏移查询。
+     */
+    @GetMapping("/{id}/transcript")
+    public ResponseEntity<List<TranscriptSentenceDTO>> getTranscript(@PathVariable Long id,
+                                                                     @RequestParam(required = false) Long fromMs,
+                                                                     @RequestParam(required = false) Long toMs,
+                                                                     @RequestParam(required = false) Integer fromOffset,
+                                                                     @RequestParam(required = false) Integer toOffset,
+                                                                     @RequestParam(defaultValue = "false") boolean words) {
+        List<TranscriptSentenceDTO> sentences = fromOffset != null || toOffset != null
+                ? taskService.getTranscriptByOffset(id,
+                        fromOffset != null ? fromOffset : 0,
+                        toOffset != null ? toOffset : Integer.MAX_VALUE, words)
+                : taskService.getTranscriptByTime(id,
+                        fromMs != null ? fromMs : 0L,
+                        toMs != null ? toMs : Long.MAX_VALUE, words);
+        if (sentences == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(sentences);
+    }
+
     @GetMapping("/list")
     public ResponseEntity<Page<TaskInfoDTO>> listTasks(@PageableDefault(size = 10, sort = "createTime") Pageable pageable) {
         Page<TaskInfoDTO> page = taskService.listTasks(pageable);
@@ -48,4 +99,34 @@ public class TaskController {
         taskService.updateTaskName(id, request.getTaskName());
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 取消未结束的任务：中止本节点上正在运行的 ffmpeg / yt-dlp 进程与识别轮询。
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<TaskInfoDTO> cancelTask(@PathVariable Long id) {
+        taskService.cancelTask(id);
+        return ResponseEntity.ok(taskService.getTaskInfo(id));
+    }
+
+    /**
+     * 重试失败或已取消的任务：从最近一个仍然有效的阶段检查点继续，不重复已完成的下载、提取与识别。
+     */
+    @PostMapping("/{id}/retry")
+    public ResponseEntity<TaskInfoDTO> retryTask(@PathVariable Long id) {
+        admissionController.admit(SecurityUtils.getCurrentUserId());
+        taskService.retryTask(id);
+        taskDispatcher.wakeUp();
+        return ResponseEntity.accepted().body(taskService.getTaskInfo(id));
+    }
+
+    @PostMapping("/retry")
+    public ResponseEntity<Map<String, List<Long>>> retryTasks(@Valid @RequestBody RetryTasksRequest request) {
+        admissionController.admit(SecurityUtils.getCurrentUserId());
+        List<Long> retried = taskService.retryTasks(request.getTaskIds());
+        if (!retried.isEmpty()) {
+            taskDispatcher.wakeUp();
+        }
+        return ResponseEntity.accepted().body(Map.of("taskIds", retried));
+    }
+}
@@ -2,37 +2,53 @@ package com.aviscribe.controller;
 
 import com.aviscribe.dto.TaskInfoDTO;
 import com.aviscribe.dto.UploadUrlRequest;
+import com.aviscribe.common.utils.SecurityUtils;
 import com.aviscribe.entity.Task;
+import com.aviscribe.pipeline.AdmissionController;
 import com.aviscribe.service.UploadService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 @RestController
 @RequestMapping("/v1/upload")
 public class UploadController {
 
     private final UploadService uploadService;
+    private final AdmissionController admissionController;
 
-    public UploadController(UploadService uploadService) {
+    public UploadController(UploadService uploadService, AdmissionController admissionController) {
         this.uploadService = uploadService;
+        this.admissionController = admissionController;
     }
 
     @PostMapping("/local")
-    public ResponseEntity<TaskInfoDTO> uploadLocal(@RequestParam("file") MultipartFile file,
-                                                   @RequestParam(value = "taskName", required = false) String taskName) {
-        if (file.isEmpty()) {
+    public ResponseEntity<TaskInfoDTO> uploadLocal(MultipartHttpServletRequest request) {
+        // 先做准入检查：multipart 为延迟解析，且文件和表单字段都在准入之后才从请求中读取，
+        // 若使用 @RequestParam 绑定，参数解析阶段就会触发整个请求体的解析落盘
+        admissionController.admit(SecurityUtils.getCurrentUserId());
+        MultipartFile file = request.getFile("file");
+        String taskName = request.getParameter("taskName");
+        if (file == null || file.isEmpty()) {
             // 使用全局异常处理来返回统一的错误响应
             throw new IllegalArgumentException("上传文件不能为空");
         }
         Task task = uploadService.handleLocalUpload(file, taskName);
-        return ResponseEntity.accepted().body(TaskInfoDTO.fromEntity(task));
+        return ResponseEntity.accepted().body(toQueuedDTO(task));
     }
 
     @PostMapping("/url")
     public ResponseEntity<TaskInfoDTO> uploadUrl(@Validated @RequestBody UploadUrlRequest request) {
+        admissionController.admit(SecurityUtils.getCurrentUserId());
         Task task = uploadService.handleUrlUpload(request);
-        return ResponseEntity.accepted().body(TaskInfoDTO.fromEntity(task));
+        return ResponseEntity.accepted().body(toQueuedDTO(task));
+    }
+
+    private TaskInfoDTO toQueuedDTO(Task task) {
+        TaskInfoDTO dto = TaskInfoDTO.fromEntity(task);
+        admissionController.fillQueueEstimate(dto, task);
+        return dto;
     }
 }
\ No newline at end of file
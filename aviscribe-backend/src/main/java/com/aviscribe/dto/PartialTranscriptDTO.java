@@ -0,0 +1,35 @@
+package com.aviscribe.dto;
+
+import com.aviscribe.entity.TaskSegment;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 转录中的部分结果：客户端以上次收到的 lastSeq 作为下一次请求的 afterSeq 增量拉取。
+ */
+@Data
+public class PartialTranscriptDTO {
+    private Long taskId;
+    private Integer taskStatus;
+    private String taskStatusText;
+    private Integer lastSeq; // 本次返回的最后一个分段序号，无新分段时等于请求的 afterSeq
+    private List<Segment> segments;
+
+    @Data
+    public static class Segment {
+        private Integer seq;
+        private Long startMs;
+        private Long endMs;
+        private String text;
+
+        public static Segment fromEntity(TaskSegment segment) {
+            Segment dto = new Segment();
+            dto.setSeq(segment.getSeq());
+            dto.setStartMs(segment.getStartMs());
+            dto.setEndMs(segment.getEndMs());
+            dto.setText(segment.getText());
+            return dto;
+        }
+    }
+}
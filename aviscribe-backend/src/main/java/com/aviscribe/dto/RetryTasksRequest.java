@@ -0,0 +1,12 @@
+package com.aviscribe.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class RetryTasksRequest {
+    @NotEmpty(message = "任务列表不能为空")
+    private List<Long> taskIds;
+}
@@ -20,6 +20,11 @@ public class TaskInfoDTO {
     private Integer durationSeconds;
     private LocalDateTime createTime;
     private LocalDateTime finishTime;
+    private Long queuePosition; // 排队位置（仅 PENDING 时有值）
+    private Long etaSeconds; // 预计剩余处理时间（秒），仅供参考
+    private Integer progressPercent; // 当前阶段进度（0-100），仅处理中且可计算时有值
+    private Long progressMs; // 当前阶段已处理到的媒体时间（毫秒）
+    private Double progressSpeed; // 当前阶段处理速度（相对实时的倍数）
 
     // 转换器：Entity -> DTO
     public static TaskInfoDTO fromEntity(Task task) {
@@ -38,6 +43,13 @@ public class TaskInfoDTO {
         dto.setFinishTime(task.getFinishTime());
         dto.setErrorLog(task.getErrorLog());
 
+        int status = task.getTaskStatus();
+        if (status > TaskStatus.PENDING.getCode() && status < TaskStatus.COMPLETED.getCode()) {
+            dto.setProgressPercent(task.getProgressPercent());
+            dto.setProgressMs(task.getProgressMs());
+            dto.setProgressSpeed(task.getProgressSpeed());
+        }
+
         // 仅在任务完成时返回结果，保护数据传输
         if (task.getTaskStatus() == TaskStatus.COMPLETED.getCode()) {
             dto.setRawText(task.getRawText());
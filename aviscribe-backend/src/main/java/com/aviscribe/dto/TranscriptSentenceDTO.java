@@ -0,0 +1,23 @@
+package com.aviscribe.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TranscriptSentenceDTO {
+    private Integer seq;
+    private Long beginMs;
+    private Long endMs;
+    private Integer startOffset;
+    private Integer endOffset;
+    private String text;
+    private List<Word> words; // 仅在请求词级结果时返回
+
+    @Data
+    public static class Word {
+        private Long beginMs;
+        private Long endMs;
+        private String text;
+    }
+}
@@ -0,0 +1,24 @@
+package com.aviscribe.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 按内容哈希寻址的识别结果，相同媒体（上传文件或提取出的音频）可直接复用。
+ */
+@Data
+@TableName("t_media_result")
+public class MediaResult {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private String mediaHash; // SHA-256（十六进制）
+    private Long scopeUserId; // 0 表示全局共享
+    private String rawText;
+    private String formattedText;
+    private Integer durationSeconds;
+    private Long sourceTaskId;
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,23 @@
+package com.aviscribe.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 开启完成回调的识别提交记录。回调可能投递到任意节点，由收到回调的节点写入结果，提交节点从库中取回。
+ */
+@Data
+@TableName("t_stt_callback")
+public class SttCallback {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private String nlsTaskId; // NLS FileTrans TaskId
+    private Long taskId;
+    private String callbackNonce; // 提交时回调地址携带的 nonce
+    private String resultBody; // 回调请求体，未收到回调时为空
+    private LocalDateTime createTime;
+    private LocalDateTime completeTime;
+}
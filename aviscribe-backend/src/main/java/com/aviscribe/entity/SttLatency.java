@@ -0,0 +1,22 @@
+package com.aviscribe.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 录音文件识别的耗时记录，用于预测后续任务的轮询时机。
+ */
+@Data
+@TableName("t_stt_latency")
+public class SttLatency {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private Long taskId;
+    private Integer durationSeconds; // 媒体时长
+    private Long processingMs; // 提交到拿到结果的耗时
+    private Integer pollCount; // 实际查询次数
+    private LocalDateTime createTime;
+}
@@ -22,7 +22,21 @@ public class Task {
     private String formattedText;
     private String errorLog;
     private Integer durationSeconds;
+    private String sourceFormat; // 源媒体容器格式（ffprobe format_name）
+    private String sourceAudioCodec; // 源媒体第一条音频流的编码
+    private String sourceVideoCodec; // 源媒体第一条视频流的编码，纯音频时为空
+    private Integer sourceSampleRate;
+    private Integer sourceChannels;
+    private String contentHash; // 上传文件 SHA-256
+    private String audioHash; // 提取音频 SHA-256
+    private String audioObjectKey; // 提取时已流式上传到 OSS 的音频对象，识别时直接使用
+    private Integer progressPercent; // 当前阶段进度（0-100），时长未知时为空
+    private Long progressMs; // 当前阶段已处理到的媒体时间（毫秒）
+    private Double progressSpeed; // 当前阶段处理速度（相对实时的倍数）
+    private Integer lastCompletedStage; // 最近完成的阶段（TaskStatus code），用于断点续跑
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
     private LocalDateTime finishTime;
+    private String leaseOwner;
+    private LocalDateTime leaseExpireTime;
 }
\ No newline at end of file
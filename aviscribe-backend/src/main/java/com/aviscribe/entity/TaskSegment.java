@@ -0,0 +1,23 @@
+package com.aviscribe.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 转录进行中已完成的音频分段结果，供前端在任务完成前逐段展示。
+ */
+@Data
+@TableName("t_task_segment")
+public class TaskSegment {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private Long taskId;
+    private Integer seq; // 分段序号，从 0 开始
+    private Long startMs;
+    private Long endMs;
+    private String text;
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,24 @@
+package com.aviscribe.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * 识别结果中的一句话，按时间与文本偏移建索引，词级时间戳压缩存放在 words 中。
+ */
+@Data
+@TableName("t_transcript_sentence")
+public class TranscriptSentence {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    private Long taskId;
+    private Integer seq; // 句子序号，从 0 开始
+    private Long beginMs;
+    private Long endMs;
+    private Integer startOffset; // 句子在全文（各句文本直接拼接）中的起始字符偏移
+    private Integer endOffset;
+    private String text;
+    private byte[] words; // 词级时间戳，格式见 TranscriptParser
+}
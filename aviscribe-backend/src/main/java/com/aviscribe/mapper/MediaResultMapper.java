@@ -0,0 +1,9 @@
+package com.aviscribe.mapper;
+
+import com.aviscribe.entity.MediaResult;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface MediaResultMapper extends BaseMapper<MediaResult> {
+}
@@ -3,7 +3,31 @@ package com.aviscribe.mapper;
 import com.aviscribe.entity.Task;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 @Mapper
 public interface TaskMapper extends BaseMapper<Task> {
-}
\ No newline at end of file
+
+    /**
+     * 锁定一批可认领的任务行，已被其他节点锁定的行直接跳过（MySQL 8 / H2）。
+     * 需在事务中调用，锁在事务提交时释放。
+     */
+    @Select("SELECT id FROM t_task WHERE task_status = #{status} AND lease_owner IS NULL "
+            + "ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<Long> selectClaimableIdsForUpdate(@Param("status") int status, @Param("limit") int limit);
+
+    /**
+     * 每个用户取队首至多 perUser 个可认领任务（短媒体优先，其次按提交顺序），供公平调度选择。
+     */
+    @Select("SELECT id, user_id, duration_seconds FROM ("
+            + " SELECT id, user_id, duration_seconds, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY"
+            + "  CASE WHEN duration_seconds IS NOT NULL AND duration_seconds <= #{shortSeconds} THEN 0 ELSE 1 END, id) AS rn"
+            + " FROM t_task WHERE task_status = #{status} AND lease_owner IS NULL) c"
+            + " WHERE c.rn <= #{perUser} ORDER BY c.user_id, c.rn")
+    List<Task> selectClaimCandidates(@Param("status") int status,
+                                     @Param("perUser") int perUser,
+                                     @Param("shortSeconds") int shortSeconds);
+}
@@ -0,0 +1,9 @@
+package com.aviscribe.mapper;
+
+import com.aviscribe.entity.TaskSegment;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface TaskSegmentMapper extends BaseMapper<TaskSegment> {
+}
@@ -0,0 +1,9 @@
+package com.aviscribe.mapper;
+
+import com.aviscribe.entity.TranscriptSentence;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface TranscriptSentenceMapper extends BaseMapper<TranscriptSentence> {
+}
@@ -0,0 +1,148 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.enums.TaskStatus;
+import com.aviscribe.common.exception.ServiceOverloadedException;
+import com.aviscribe.dto.TaskInfoDTO;
+import com.aviscribe.entity.Task;
+import com.aviscribe.mapper.TaskMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * 上传入口的准入控制：根据排队深度、上传目录剩余磁盘与各阶段积压决定是否接收新任务，
+ * 饱和时快速拒绝（429/503 + Retry-After），而不是让请求线程陪着任务一起排队。
+ * 同时为已接收的任务估算排队位置与预计完成时间。
+ */
+@Component
+public class AdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final TaskMapper taskMapper;
+    private final StageExecutors stageExecutors;
+    private final AdmissionProperties properties;
+
+    @Value("${aviscribe.file.upload-path}")
+    private String uploadPath;
+
+    public AdmissionController(TaskMapper taskMapper,
+                               StageExecutors stageExecutors,
+                               AdmissionProperties properties) {
+        this.taskMapper = taskMapper;
+        this.stageExecutors = stageExecutors;
+        this.properties = properties;
+    }
+
+    /**
+     * 检查是否允许该用户提交新任务，不允许时抛出 {@link ServiceOverloadedException}。
+     */
+    public void admit(Long userId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long freeMb = usableDiskMb();
+        if (freeMb >= 0 && freeMb < properties.getMinFreeDiskMb()) {
+            log.warn("[Admission] 上传目录可用空间不足: {}MB", freeMb);
+            throw reject(HttpStatus.SERVICE_UNAVAILABLE, "服务器存储空间不足，请稍后再试", properties.getMaxRetryAfterSeconds());
+        }
+
+        for (PipelineStage stage : PipelineStage.values()) {
+            double lag = stageExecutors.estimatedLagSeconds(stage);
+            if (lag > properties.getMaxStageLagSeconds()) {
+                log.warn("[Admission] {} 阶段积压约 {} 秒", stage, (long) lag);
+                throw reject(HttpStatus.SERVICE_UNAVAILABLE, "系统繁忙，请稍后再试",
+                        (long) (lag - properties.getMaxStageLagSeconds()));
+            }
+        }
+
+        long pending = countPending(null);
+        if (pending >= properties.getMaxPendingTasks()) {
+            long excess = pending - properties.getMaxPendingTasks() + 1;
+            throw reject(HttpStatus.SERVICE_UNAVAILABLE, "排队任务过多，请稍后再试",
+                    (long) (excess * bottleneckIntervalSeconds()));
+        }
+
+        if (userId != null && countPending(userId) >= properties.getMaxPendingPerUser()) {
+            throw reject(HttpStatus.TOO_MANY_REQUESTS, "您排队中的任务过多，请等待已提交任务完成后再试",
+                    (long) bottleneckIntervalSeconds());
+        }
+    }
+
+    /**
+     * 为未结束的任务填充排队位置与预计剩余时间（秒）；尚无耗时样本时不填充 ETA。
+     */
+    public void fillQueueEstimate(TaskInfoDTO dto, Task task) {
+        if (dto == null || task == null || task.getTaskStatus() == null) {
+            return;
+        }
+        int status = task.getTaskStatus();
+        double remaining = 0d;
+        boolean counting = false;
+        for (PipelineStage stage : PipelineStage.values()) {
+            counting = counting || status == TaskStatus.PENDING.getCode() || stage.getStatus().getCode() == status;
+            if (counting) {
+                remaining += stageExecutors.averageRunSeconds(stage);
+            }
+        }
+        if (!counting) {
+            return; // 已完成 / 失败
+        }
+        if (status == TaskStatus.PENDING.getCode()) {
+            LambdaQueryWrapper<Task> ahead = new LambdaQueryWrapper<>();
+            ahead.eq(Task::getTaskStatus, TaskStatus.PENDING.getCode())
+                    .isNull(Task::getLeaseOwner)
+                    .lt(Task::getId, task.getId());
+            long position = taskMapper.selectCount(ahead) + 1;
+            dto.setQueuePosition(position);
+            remaining += position * bottleneckIntervalSeconds();
+        }
+        if (remaining > 0) {
+            dto.setEtaSeconds((long) Math.ceil(remaining));
+        }
+    }
+
+    /**
+     * 流水线瓶颈阶段完成一个任务的平均间隔（秒）：max(阶段平均耗时 / 阶段线程数)。
+     */
+    private double bottleneckIntervalSeconds() {
+        double interval = 0d;
+        for (PipelineStage stage : PipelineStage.values()) {
+            int threads = Math.max(1, stageExecutors.maxSize(stage));
+            interval = Math.max(interval, stageExecutors.averageRunSeconds(stage) / threads);
+        }
+        return interval;
+    }
+
+    private long countPending(Long userId) {
+        LambdaQueryWrapper<Task> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Task::getTaskStatus, TaskStatus.PENDING.getCode());
+        if (userId != null) {
+            wrapper.eq(Task::getUserId, userId);
+        }
+        return taskMapper.selectCount(wrapper);
+    }
+
+    private long usableDiskMb() {
+        if (uploadPath == null || uploadPath.isBlank()) {
+            return -1;
+        }
+        // 上传目录可能尚未创建，取最近的已存在上级目录
+        File dir = new File(uploadPath).getAbsoluteFile();
+        while (dir != null && !dir.exists()) {
+            dir = dir.getParentFile();
+        }
+        return dir == null ? -1 : dir.getUsableSpace() / (1024 * 1024);
+    }
+
+    private ServiceOverloadedException reject(HttpStatus status, String message, long retryAfterSeconds) {
+        long clamped = Math.min(properties.getMaxRetryAfterSeconds(),
+                Math.max(properties.getMinRetryAfterSeconds(), retryAfterSeconds));
+        return new ServiceOverloadedException(status, message, clamped);
+    }
+}
@@ -0,0 +1,34 @@
+package com.aviscribe.pipeline;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 上传入口的准入控制阈值。
+ */
+@Data
+@ConfigurationProperties(prefix = "aviscribe.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+    /**
+     * 全局排队（PENDING）任务上限，超过返回 503。
+     */
+    private int maxPendingTasks = 500;
+    /**
+     * 单个用户排队任务上限，超过返回 429。
+     */
+    private int maxPendingPerUser = 50;
+    /**
+     * 上传目录所在磁盘的最小可用空间（MB），低于该值返回 503。
+     */
+    private long minFreeDiskMb = 2048;
+    /**
+     * 任一阶段预计积压时长（秒）上限，超过返回 503。
+     */
+    private long maxStageLagSeconds = 1800;
+    /**
+     * Retry-After 的下限与上限（秒）。
+     */
+    private long minRetryAfterSeconds = 10;
+    private long maxRetryAfterSeconds = 600;
+}
@@ -0,0 +1,22 @@
+package com.aviscribe.pipeline;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 按内容哈希复用识别结果的配置。
+ */
+@Data
+@ConfigurationProperties(prefix = "aviscribe.dedup")
+public class DedupProperties {
+    private boolean enabled = true;
+    /**
+     * USER：只复用同一用户的结果；GLOBAL：所有用户共享结果。
+     */
+    private Scope scope = Scope.USER;
+
+    public enum Scope {
+        USER,
+        GLOBAL
+    }
+}
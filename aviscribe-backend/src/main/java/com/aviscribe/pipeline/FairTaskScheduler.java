@@ -0,0 +1,108 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.enums.UserRole;
+import com.aviscribe.entity.Task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按用户的加权赤字轮转（Deficit Round Robin）调度器。
+ * <p>
+ * 每个有待处理任务的用户是一条队列，每轮获得 quantum × 角色权重 的额度（单位：媒体秒数），
+ * 任务的成本为其媒体时长（未知时取默认值），额度足够时才出队。这样每个用户按权重分享处理能力，
+ * 单个用户一次提交大量任务也不会饿死其他用户；短媒体成本低，会先于长媒体被调度。
+ * 赤字与轮转位置跨多次调用保留，用户的队列清空后重置。
+ */
+public class FairTaskScheduler {
+
+    private final TaskQueueProperties.Fairness config;
+    private final Deque<Long> activeUsers = new ArrayDeque<>();
+    private final Map<Long, Double> deficits = new HashMap<>();
+    /**
+     * 本轮已经发放过额度的队首用户，避免同一轮重复加额度
+     */
+    private Long creditedHead;
+
+    public FairTaskScheduler(TaskQueueProperties.Fairness config) {
+        this.config = config;
+    }
+
+    /**
+     * 从候选任务中公平地选出至多 limit 个任务。
+     *
+     * @param candidates 各用户待处理的任务，用户内按期望的出队顺序排列
+     * @param roles      候选任务所属用户的角色，用于确定权重
+     */
+    public synchronized List<Long> select(List<Task> candidates, Map<Long, UserRole> roles, int limit) {
+        Map<Long, Deque<Task>> queues = new LinkedHashMap<>();
+        for (Task task : candidates) {
+            queues.computeIfAbsent(task.getUserId(), k -> new ArrayDeque<>()).addLast(task);
+        }
+
+        // 队列已清空的用户退出轮转并重置赤字；新出现的用户排到轮转末尾
+        activeUsers.removeIf(userId -> {
+            if (queues.containsKey(userId)) {
+                return false;
+            }
+            deficits.remove(userId);
+            return true;
+        });
+        if (creditedHead != null && !creditedHead.equals(activeUsers.peekFirst())) {
+            creditedHead = null;
+        }
+        for (Long userId : queues.keySet()) {
+            if (!deficits.containsKey(userId)) {
+                deficits.put(userId, 0d);
+                activeUsers.addLast(userId);
+            }
+        }
+
+        List<Long> selected = new ArrayList<>();
+        while (selected.size() < limit && !activeUsers.isEmpty()) {
+            Long userId = activeUsers.peekFirst();
+            Deque<Task> queue = queues.get(userId);
+            if (!userId.equals(creditedHead)) {
+                deficits.merge(userId, quantum(roles.get(userId)), Double::sum);
+                creditedHead = userId;
+            }
+            double deficit = deficits.get(userId);
+            Task head = queue.peekFirst();
+            double cost = cost(head);
+            if (cost <= deficit) {
+                queue.pollFirst();
+                selected.add(head.getId());
+                deficits.put(userId, deficit - cost);
+                if (queue.isEmpty()) {
+                    activeUsers.pollFirst();
+                    deficits.remove(userId);
+                    creditedHead = null;
+                }
+            } else {
+                activeUsers.addLast(activeUsers.pollFirst());
+                creditedHead = null;
+            }
+        }
+        return selected;
+    }
+
+    private double quantum(UserRole role) {
+        String key = (role == null ? UserRole.USER : role).name();
+        Double weight = config.getRoleWeights().get(key);
+        double effective = weight == null || weight <= 0 ? 1d : weight;
+        return Math.max(1, config.getQuantumSeconds()) * effective;
+    }
+
+    private double cost(Task task) {
+        Integer duration = task.getDurationSeconds();
+        if (duration == null || duration <= 0) {
+            return Math.max(1, config.getUnknownDurationSeconds());
+        }
+        return duration;
+    }
+}
@@ -0,0 +1,57 @@
+package com.aviscribe.pipeline;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 各流水线阶段的执行配置。size / 并发配置为 0 时表示按 CPU 核数取值。
+ */
+@Data
+@ConfigurationProperties(prefix = "aviscribe.pipeline")
+public class PipelineProperties {
+    /**
+     * platform：每阶段一个有界线程池；virtual：每个任务一个虚拟线程（需 JDK 21+），HTTP 连接器同样使用虚拟线程。
+     */
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private StagePool download = new StagePool(4, 8, 100, 1000);
+    private StagePool extract = new StagePool(0, 0, 100, 0);
+    private StagePool transcribe = new StagePool(16, 64, 500, 10000);
+    private StagePool format = new StagePool(4, 8, 500, 1000);
+    /**
+     * 进入阶段的状态变更合并写入的间隔（毫秒），0 表示立即写入。
+     */
+    private long statusFlushMs = 200;
+    /**
+     * 阶段进度（如 ffmpeg 的处理进度）写库的间隔（毫秒），同一任务只写最新一次；0 表示每次上报都写入。
+     */
+    private long progressFlushMs = 2000;
+
+    public StagePool poolFor(PipelineStage stage) {
+        return switch (stage) {
+            case DOWNLOAD -> download;
+            case EXTRACT -> extract;
+            case TRANSCRIBE -> transcribe;
+            case FORMAT -> format;
+        };
+    }
+
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StagePool {
+        private int coreSize;
+        private int maxSize;
+        private int queueCapacity;
+        /**
+         * virtual 模式下该阶段同时执行的任务上限
+         */
+        private int virtualMaxConcurrent;
+    }
+}
@@ -0,0 +1,31 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.enums.TaskStatus;
+import lombok.Getter;
+
+/**
+ * 任务处理流水线的阶段，与 {@link TaskStatus} 中的处理中状态一一对应。
+ */
+@Getter
+public enum PipelineStage {
+    DOWNLOAD("download", TaskStatus.DOWNLOADING),
+    EXTRACT("extract", TaskStatus.EXTRACTING_AUDIO),
+    TRANSCRIBE("transcribe", TaskStatus.TRANSCRIBING),
+    FORMAT("format", TaskStatus.FORMATTING);
+
+    private final String key;
+    private final TaskStatus status;
+
+    PipelineStage(String key, TaskStatus status) {
+        this.key = key;
+        this.status = status;
+    }
+
+    /**
+     * 下一个阶段；最后一个阶段返回 null。
+     */
+    public PipelineStage next() {
+        PipelineStage[] stages = values();
+        return ordinal() + 1 < stages.length ? stages[ordinal() + 1] : null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.aviscribe.pipeline;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 基于有界平台线程池的阶段通道。
+ */
+public class PlatformStageLane implements StageLane {
+
+    private final ThreadPoolTaskExecutor executor;
+
+    public PlatformStageLane(ThreadPoolTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable work) {
+        executor.execute(work);
+    }
+
+    @Override
+    public int queueDepth() {
+        return executor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    @Override
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return executor.getMaxPoolSize();
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
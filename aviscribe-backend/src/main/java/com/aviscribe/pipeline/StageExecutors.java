@@ -0,0 +1,154 @@
+package com.aviscribe.pipeline;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水线各阶段独立的执行通道（平台线程池或虚拟线程，见 {@link StageLane}）。任务在阶段之间以交接方式流转，
+ * 等待外部服务（STT / LLM）的任务不会占用 CPU 密集阶段（ffmpeg）的线程。
+ * <p>
+ * 每个阶段会上报以下指标（tag: stage）：
+ * aviscribe.pipeline.queue.depth、aviscribe.pipeline.active、aviscribe.pipeline.utilization、
+ * aviscribe.pipeline.stage.wait（排队耗时）与 aviscribe.pipeline.stage.run（执行耗时）。
+ */
+public class StageExecutors implements DisposableBean {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final Map<PipelineStage, StageLane> lanes;
+    private final Map<PipelineStage, Timer> waitTimers = new EnumMap<>(PipelineStage.class);
+    private final Map<PipelineStage, Timer> runTimers = new EnumMap<>(PipelineStage.class);
+    private final Map<PipelineStage, AtomicLong> averageRunNanos = new EnumMap<>(PipelineStage.class);
+
+    public StageExecutors(Map<PipelineStage, StageLane> lanes, MeterRegistry meterRegistry) {
+        this.lanes = new EnumMap<>(lanes);
+        for (Map.Entry<PipelineStage, StageLane> entry : this.lanes.entrySet()) {
+            registerMetrics(entry.getKey(), meterRegistry);
+            averageRunNanos.put(entry.getKey(), new AtomicLong());
+        }
+    }
+
+    /**
+     * 将一段工作提交到指定阶段的线程池。
+     */
+    public void submit(PipelineStage stage, Runnable work) {
+        StageLane lane = laneOf(stage);
+        Timer waitTimer = waitTimers.get(stage);
+        Timer runTimer = runTimers.get(stage);
+        long enqueuedAt = System.nanoTime();
+        lane.execute(() -> {
+            long startedAt = System.nanoTime();
+            waitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+            try {
+                work.run();
+            } finally {
+                long elapsed = System.nanoTime() - startedAt;
+                runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                recordRunTime(stage, elapsed);
+            }
+        });
+    }
+
+    /**
+     * 指定阶段通道的 Executor，供异步结果（如识别完成回调）切回阶段线程继续处理，
+     * 避免在轮询线程或 HTTP 线程上写库；不计入阶段耗时指标。通道已满或已关闭时由当前线程执行，保证回调不丢失。
+     */
+    public Executor executor(PipelineStage stage) {
+        StageLane lane = laneOf(stage);
+        return work -> {
+            try {
+                lane.execute(work);
+            } catch (RejectedExecutionException e) {
+                work.run();
+            }
+        };
+    }
+
+    public int queueDepth(PipelineStage stage) {
+        return laneOf(stage).queueDepth();
+    }
+
+    public int activeCount(PipelineStage stage) {
+        return laneOf(stage).activeCount();
+    }
+
+    public int maxSize(PipelineStage stage) {
+        return laneOf(stage).maxConcurrency();
+    }
+
+    /**
+     * 当前阶段的利用率：执行中任务数 / 最大并发数。
+     */
+    public double utilization(PipelineStage stage) {
+        int max = maxSize(stage);
+        return max <= 0 ? 0d : (double) activeCount(stage) / max;
+    }
+
+    /**
+     * 阶段单次执行耗时的指数滑动平均（秒），尚无样本时返回 0。
+     */
+    public double averageRunSeconds(PipelineStage stage) {
+        AtomicLong average = averageRunNanos.get(stage);
+        return average == null ? 0d : average.get() / 1_000_000_000d;
+    }
+
+    /**
+     * 按当前队列深度、平均执行耗时与线程数估算的阶段积压时长（秒）。
+     */
+    public double estimatedLagSeconds(PipelineStage stage) {
+        int max = maxSize(stage);
+        return max <= 0 ? 0d : queueDepth(stage) * averageRunSeconds(stage) / max;
+    }
+
+    private void recordRunTime(PipelineStage stage, long elapsedNanos) {
+        averageRunNanos.get(stage).updateAndGet(previous -> previous == 0
+                ? elapsedNanos
+                : (long) (previous + EWMA_ALPHA * (elapsedNanos - previous)));
+    }
+
+    private StageLane laneOf(PipelineStage stage) {
+        StageLane lane = lanes.get(stage);
+        if (lane == null) {
+            throw new IllegalStateException("未配置流水线阶段通道: " + stage);
+        }
+        return lane;
+    }
+
+    private void registerMetrics(PipelineStage stage, MeterRegistry registry) {
+        String tag = stage.getKey();
+        Gauge.builder("aviscribe.pipeline.queue.depth", this, self -> self.queueDepth(stage))
+                .description("流水线阶段排队中的任务数")
+                .tag("stage", tag)
+                .register(registry);
+        Gauge.builder("aviscribe.pipeline.active", this, self -> self.activeCount(stage))
+                .description("流水线阶段正在执行的任务数")
+                .tag("stage", tag)
+                .register(registry);
+        Gauge.builder("aviscribe.pipeline.utilization", this, self -> self.utilization(stage))
+                .description("流水线阶段线程利用率")
+                .tag("stage", tag)
+                .register(registry);
+        waitTimers.put(stage, Timer.builder("aviscribe.pipeline.stage.wait")
+                .description("任务在阶段队列中的等待时间")
+                .tag("stage", tag)
+                .register(registry));
+        runTimers.put(stage, Timer.builder("aviscribe.pipeline.stage.run")
+                .description("任务在阶段中的执行时间")
+                .tag("stage", tag)
+                .register(registry));
+    }
+
+    @Override
+    public void destroy() {
+        lanes.values().forEach(StageLane::shutdown);
+    }
+}
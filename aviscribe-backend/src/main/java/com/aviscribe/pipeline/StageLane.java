@@ -0,0 +1,20 @@
+package com.aviscribe.pipeline;
+
+/**
+ * 单个流水线阶段的执行通道：平台线程池或虚拟线程 + 并发许可。
+ */
+public interface StageLane {
+
+    /**
+     * 提交工作；通道已满时抛出 {@link org.springframework.core.task.TaskRejectedException}。
+     */
+    void execute(Runnable work);
+
+    int queueDepth();
+
+    int activeCount();
+
+    int maxConcurrency();
+
+    void shutdown();
+}
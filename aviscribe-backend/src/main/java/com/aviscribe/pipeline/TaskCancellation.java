@@ -0,0 +1,180 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.exception.TaskCancelledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 本节点执行中任务的取消登记：记录正在执行阶段的线程与其启动的外部进程（ffmpeg、yt-dlp），
+ * 取消时中断线程、强制结束进程、执行登记的取消回调，阶段在检查点处发现取消后直接退出。
+ * <p>
+ * 任务被本节点认领时 {@link #open}，释放时 {@link #close}；阶段线程通过 {@link #begin}/{@link #end}
+ * 绑定当前任务，外部进程通过 {@link #track}/{@link #untrack} 登记，无需显式传递任务 ID。
+ * <p>
+ * 每次认领对应一个独立的 {@link Handle}：已取消的执行尚未退出时任务被重试并再次认领，
+ * 新的执行使用新的 Handle，旧执行的收尾不会影响它。
+ */
+@Component
+public class TaskCancellation {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskCancellation.class);
+
+    private final Map<Long, Handle> handles = new ConcurrentHashMap<>();
+    private final ThreadLocal<Handle> current = new ThreadLocal<>();
+
+    /**
+     * 登记一次认领，返回本次执行的 Handle；已取消但尚未退出的旧执行不会被沿用。
+     */
+    public Handle open(Long taskId) {
+        return handles.compute(taskId, (id, existing) ->
+                existing == null || existing.cancelled ? new Handle(id) : existing);
+    }
+
+    /**
+     * 移除本次执行的登记；任务已被重新认领时保留新执行的登记。
+     */
+    public void close(Long taskId, Handle handle) {
+        if (handle != null) {
+            handles.remove(taskId, handle);
+        }
+    }
+
+    /**
+     * 将当前线程绑定到本次执行，已取消时抛出 {@link TaskCancelledException}。
+     */
+    public void begin(Handle handle) {
+        synchronized (handle) {
+            if (handle.cancelled) {
+                throw new TaskCancelledException(handle.taskId);
+            }
+            handle.worker = Thread.currentThread();
+        }
+        current.set(handle);
+    }
+
+    /**
+     * 解除当前线程与任务的绑定，并清除取消时留下的中断标记，避免影响线程池中的下一个任务。
+     */
+    public void end() {
+        Handle handle = current.get();
+        current.remove();
+        if (handle == null) {
+            return;
+        }
+        synchronized (handle) {
+            handle.worker = null;
+            if (handle.cancelled) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * 登记当前任务启动的外部进程；任务已取消时立即结束该进程。
+     */
+    public Process track(Process process) {
+        Handle handle = current.get();
+        if (handle == null) {
+            return process;
+        }
+        boolean cancelled;
+        synchronized (handle) {
+            handle.processes.add(process);
+            cancelled = handle.cancelled;
+        }
+        if (cancelled) {
+            destroy(process);
+        }
+        return process;
+    }
+
+    /**
+     * 登记当前任务取消时需要执行的回调（如停止异步等待的识别结果）；任务已取消时立即执行。
+     */
+    public void onCancel(Runnable callback) {
+        Handle handle = current.get();
+        if (handle == null) {
+            return;
+        }
+        boolean cancelled;
+        synchronized (handle) {
+            handle.callbacks.add(callback);
+            cancelled = handle.cancelled;
+        }
+        if (cancelled) {
+            callback.run();
+        }
+    }
+
+    public void untrack(Process process) {
+        Handle handle = current.get();
+        if (handle != null && process != null) {
+            handle.processes.remove(process);
+        }
+    }
+
+    /**
+     * 取消本节点上执行中的任务，返回该任务是否由本节点执行。
+     */
+    public boolean cancel(Long taskId) {
+        Handle handle = handles.get(taskId);
+        if (handle == null) {
+            return false;
+        }
+        List<Process> processes;
+        synchronized (handle) {
+            handle.cancelled = true;
+            processes = List.copyOf(handle.processes);
+            // 在锁内中断：end() 解绑同样持有该锁，此时 worker 仍是执行本任务的线程，
+            // 不会在线程被线程池交给下一个任务后才迟到地中断它
+            if (handle.worker != null) {
+                handle.worker.interrupt();
+            }
+        }
+        processes.forEach(this::destroy);
+        handle.callbacks.forEach(Runnable::run);
+        log.info("[Cancel] 任务 {} 已取消，结束 {} 个外部进程", taskId, processes.size());
+        return true;
+    }
+
+    public boolean isCancelled(Handle handle) {
+        return handle != null && handle.cancelled;
+    }
+
+    /**
+     * 当前线程绑定的任务已取消时抛出 {@link TaskCancelledException}，供长耗时循环在迭代间检查。
+     */
+    public void checkCancelled() {
+        Handle handle = current.get();
+        if (handle != null && handle.cancelled) {
+            throw new TaskCancelledException(handle.taskId);
+        }
+    }
+
+    private void destroy(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * 一次认领的取消状态。
+     */
+    public static final class Handle {
+        private final Long taskId;
+        private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+        private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+        private volatile boolean cancelled;
+        private Thread worker;
+
+        private Handle(Long taskId) {
+            this.taskId = taskId;
+        }
+    }
+}
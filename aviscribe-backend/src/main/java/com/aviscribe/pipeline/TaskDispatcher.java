@@ -0,0 +1,106 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.service.JobProcessService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 从持久化队列中拉取任务并投递到处理流水线，同时负责租约心跳与过期回收。
+ */
+@Component
+public class TaskDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskDispatcher.class);
+
+    private final TaskQueue taskQueue;
+    private final TaskQueueProperties properties;
+    private final JobProcessService jobProcessService;
+    private final TaskScheduler taskScheduler;
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    public TaskDispatcher(TaskQueue taskQueue,
+                          TaskQueueProperties properties,
+                          JobProcessService jobProcessService,
+                          TaskScheduler taskScheduler) {
+        this.taskQueue = taskQueue;
+        this.properties = properties;
+        this.jobProcessService = jobProcessService;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        taskQueue.recover(true);
+        wakeUp();
+    }
+
+    /**
+     * 新任务入队后调用，立即触发一次拉取，而不必等待下一个轮询周期。
+     */
+    public void wakeUp() {
+        if (properties.isEnabled()) {
+            taskScheduler.schedule(this::dispatch, Instant.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aviscribe.queue.poll-interval-ms:2000}")
+    public void dispatch() {
+        if (!properties.isEnabled() || !dispatchLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Long> claimed = taskQueue.claim();
+            for (Long taskId : claimed) {
+                try {
+                    jobProcessService.processTask(taskId);
+                } catch (Exception e) {
+                    log.error("[Queue] 投递任务 {} 失败，释放租约", taskId, e);
+                    taskQueue.release(taskId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("[Queue] 拉取任务失败", e);
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aviscribe.queue.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            taskQueue.heartbeat();
+        } catch (Exception e) {
+            log.error("[Queue] 租约续约失败", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aviscribe.queue.recovery-interval-ms:60000}",
+            initialDelayString = "${aviscribe.queue.recovery-interval-ms:60000}")
+    public void recoverExpired() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            if (taskQueue.recover(false) > 0) {
+                wakeUp();
+            }
+        } catch (Exception e) {
+            log.error("[Queue] 回收过期租约失败", e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.entity.Task;
+import com.aviscribe.service.TaskService;
+import com.aviscribe.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以 t_task 为唯一事实来源的任务队列：入队即落库为 PENDING，
+ * 节点通过租约（lease_owner + lease_expire_time）认领任务，执行期间定期续约，
+ * 租约过期的任务会被重新置为 PENDING，由任意节点再次认领。
+ */
+@Component
+public class TaskQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskQueue.class);
+
+    private final TaskService taskService;
+    private final UserService userService;
+    private final TaskQueueProperties properties;
+    private final FairTaskScheduler fairTaskScheduler;
+    private final TaskCancellation taskCancellation;
+    private final String nodeId;
+    /**
+     * 本节点执行中的任务及其本次执行的取消登记。
+     */
+    private final Map<Long, TaskCancellation.Handle> inFlight = new ConcurrentHashMap<>();
+
+    public TaskQueue(TaskService taskService,
+                     UserService userService,
+                     TaskQueueProperties properties,
+                     TaskCancellation taskCancellation) {
+        this.taskService = taskService;
+        this.userService = userService;
+        this.properties = properties;
+        this.taskCancellation = taskCancellation;
+        this.fairTaskScheduler = new FairTaskScheduler(properties.getFairness());
+        this.nodeId = resolveNodeId(properties.getNodeId());
+        log.info("[Queue] 当前节点标识: {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 在本节点剩余容量内认领 PENDING 任务，返回认领成功的任务 ID。
+     * 单节点下逐条条件更新即可；集群模式下改用 SKIP LOCKED，避免多个节点争抢同一批行。
+     */
+    public List<Long> claim() {
+        int limit = properties.getCapacity() - inFlight.size();
+        if (limit <= 0) {
+            return List.of();
+        }
+        if (properties.getFairness().isEnabled()) {
+            return claimFairly(limit);
+        }
+        if (properties.isClusterMode()) {
+            List<Long> claimed = taskService.claimTasksSkipLocked(limit, nodeId, nextLeaseExpireTime());
+            claimed.forEach(this::track);
+            return claimed;
+        }
+        return claimEach(taskService.findClaimableTaskIds(limit));
+    }
+
+    /**
+     * 先取各用户队首的一批候选任务，由公平调度器决定认领哪些。
+     * 集群模式下各节点各自维护赤字，整体上近似公平。
+     */
+    private List<Long> claimFairly(int limit) {
+        TaskQueueProperties.Fairness fairness = properties.getFairness();
+        List<Task> candidates = taskService.findClaimCandidates(fairness.getPerUserWindow(), fairness.getShortMediaSeconds());
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> userIds = new HashSet<>();
+        candidates.forEach(task -> userIds.add(task.getUserId()));
+        List<Long> selected = fairTaskScheduler.select(candidates, userService.findRoles(userIds), limit);
+        if (selected.isEmpty()) {
+            return List.of();
+        }
+        if (properties.isClusterMode()) {
+            List<Long> claimed = taskService.claimSelectedTasksSkipLocked(selected, nodeId, nextLeaseExpireTime());
+            claimed.forEach(this::track);
+            return claimed;
+        }
+        return claimEach(selected);
+    }
+
+    private List<Long> claimEach(List<Long> taskIds) {
+        List<Long> claimed = new ArrayList<>();
+        for (Long taskId : taskIds) {
+            if (taskService.claimTask(taskId, nodeId, nextLeaseExpireTime())) {
+                track(taskId);
+                claimed.add(taskId);
+            }
+        }
+        return claimed;
+    }
+
+    private void track(Long taskId) {
+        inFlight.put(taskId, taskCancellation.open(taskId));
+    }
+
+    /**
+     * 为本节点执行中的任务续约；续约失败（已被回收或被取消）的任务从本地移除并中止正在执行的阶段。
+     */
+    public void heartbeat() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        Set<Long> snapshot = new HashSet<>(inFlight.keySet());
+        int renewed = taskService.renewLeases(snapshot, nodeId, nextLeaseExpireTime());
+        if (renewed < snapshot.size()) {
+            Set<Long> owned = new HashSet<>(taskService.findLeasedTaskIds(snapshot, nodeId));
+            for (Long taskId : snapshot) {
+                if (!owned.contains(taskId) && inFlight.remove(taskId) != null) {
+                    log.warn("[Queue] 任务 {} 的租约已丢失，本节点停止处理", taskId);
+                    taskCancellation.cancel(taskId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 回收租约过期的任务；startup 为 true 时同时回收没有租约却停留在处理中状态的任务（如升级前遗留）。
+     */
+    public int recover(boolean startup) {
+        int count = taskService.requeueExpiredLeases(LocalDateTime.now());
+        if (startup) {
+            count += taskService.requeueUnleasedTasks();
+        }
+        if (count > 0) {
+            log.info("[Queue] 已将 {} 个中断的任务重新入队", count);
+        }
+        return count;
+    }
+
+    /**
+     * 本节点认领该任务时登记的执行，未持有时返回 null。
+     */
+    public TaskCancellation.Handle run(Long taskId) {
+        return inFlight.get(taskId);
+    }
+
+    /**
+     * 任务结束（完成/失败）后释放租约。
+     */
+    public void release(Long taskId) {
+        untrack(taskId, inFlight.get(taskId));
+        taskService.releaseLease(taskId, nodeId);
+    }
+
+    /**
+     * 租约已随最终状态一并清除（完成/失败/取消）时，只移除本次执行的本地登记，不再单独写库。
+     */
+    public void finish(Long taskId, TaskCancellation.Handle run) {
+        untrack(taskId, run);
+    }
+
+    /**
+     * 本节点暂时无法处理（如阶段队列已满）时，放弃租约并将任务退回 PENDING。
+     */
+    public void requeue(Long taskId, TaskCancellation.Handle run) {
+        if (untrack(taskId, run)) {
+            taskService.requeueTask(taskId, nodeId);
+        }
+    }
+
+    /**
+     * 本节点是否仍以该次执行持有任务的租约；任务被取消后重新认领时，旧执行不再持有。
+     */
+    public boolean holds(Long taskId, TaskCancellation.Handle run) {
+        return run != null && inFlight.get(taskId) == run;
+    }
+
+    private boolean untrack(Long taskId, TaskCancellation.Handle run) {
+        taskCancellation.close(taskId, run);
+        return run != null && inFlight.remove(taskId, run);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private LocalDateTime nextLeaseExpireTime() {
+        return LocalDateTime.now().plusSeconds(properties.getLeaseSeconds());
+    }
+
+    private String resolveNodeId(String configured) {
+        if (configured != null && !configured.isBlank()) {
+            return configured.trim();
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
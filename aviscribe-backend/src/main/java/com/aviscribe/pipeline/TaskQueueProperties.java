@@ -0,0 +1,64 @@
+package com.aviscribe.pipeline;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于 t_task 的持久化任务队列配置：租约、心跳与过期回收。
+ */
+@Data
+@ConfigurationProperties(prefix = "aviscribe.queue")
+public class TaskQueueProperties {
+    /**
+     * 是否在本节点拉取并执行任务；关闭后只入队不消费。
+     */
+    private boolean enabled = true;
+    /**
+     * 集群模式：多个节点共享同一 t_task，使用 SELECT ... FOR UPDATE SKIP LOCKED 认领任务。
+     */
+    private boolean clusterMode = false;
+    /**
+     * 节点标识，写入 lease_owner；留空则按主机名 + 随机后缀生成。
+     */
+    private String nodeId;
+    /**
+     * 本节点同时持有租约（执行中）的任务上限。
+     */
+    private int capacity = 32;
+    private long leaseSeconds = 120;
+    private long heartbeatIntervalMs = 20000;
+    private long pollIntervalMs = 2000;
+    private long recoveryIntervalMs = 60000;
+    private Fairness fairness = new Fairness();
+
+    /**
+     * 按用户的加权公平调度（见 {@link FairTaskScheduler}）。
+     */
+    @Data
+    public static class Fairness {
+        private boolean enabled = true;
+        /**
+         * 每轮发放给权重为 1 的用户的额度（媒体秒数）。
+         */
+        private int quantumSeconds = 300;
+        /**
+         * 尚未探测出时长的任务（如 URL 任务）按此时长计成本。
+         */
+        private int unknownDurationSeconds = 600;
+        /**
+         * 不超过该时长的媒体在用户自己的队列中优先。
+         */
+        private int shortMediaSeconds = 120;
+        /**
+         * 每次拉取时每个用户参与调度的候选任务数。
+         */
+        private int perUserWindow = 20;
+        /**
+         * 按 UserRole 配置的权重，未配置的角色权重为 1。
+         */
+        private Map<String, Double> roleWeights = new HashMap<>(Map.of("ADMIN", 4d, "USER", 1d));
+    }
+}
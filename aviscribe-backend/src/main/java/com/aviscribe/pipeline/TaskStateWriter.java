@@ -0,0 +1,161 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.enums.TaskStatus;
+import com.aviscribe.entity.Task;
+import com.aviscribe.service.TaskService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 流水线对 t_task 的写入入口：
+ * <ul>
+ *     <li>阶段完成时，产物列、检查点与下一阶段状态合并为一次只含变更列的更新；</li>
+ *     <li>仅改状态的“进入阶段”写入先缓冲，同一任务只保留最新状态，按固定间隔按状态分组批量写入；</li>
+ *     <li>阶段内的进度上报同样只保留每个任务的最新值，按较长的间隔写入；</li>
+ *     <li>完成/失败时状态与租约释放在同一次更新中完成。</li>
+ * </ul>
+ */
+@Component
+public class TaskStateWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskStateWriter.class);
+
+    private final TaskService taskService;
+    private final TaskScheduler taskScheduler;
+    private final long flushMs;
+    private final long progressFlushMs;
+    private final Map<Long, TaskStatus> pending = new ConcurrentHashMap<>();
+    private final Map<Long, StageProgress> pendingProgress = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> flushFuture;
+    private ScheduledFuture<?> progressFlushFuture;
+
+    public TaskStateWriter(TaskService taskService, TaskScheduler taskScheduler, PipelineProperties properties) {
+        this.taskService = taskService;
+        this.taskScheduler = taskScheduler;
+        this.flushMs = properties.getStatusFlushMs();
+        this.progressFlushMs = properties.getProgressFlushMs();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (flushMs > 0) {
+            flushFuture = taskScheduler.scheduleWithFixedDelay(this::flush, Duration.ofMillis(flushMs));
+        }
+        if (progressFlushMs > 0) {
+            progressFlushFuture = taskScheduler.scheduleWithFixedDelay(this::flushProgress, Duration.ofMillis(progressFlushMs));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        if (progressFlushFuture != null) {
+            progressFlushFuture.cancel(false);
+        }
+        flush();
+    }
+
+    /**
+     * 任务开始进入某个阶段（仅状态变化，无产物）。
+     */
+    public void enterStage(Long taskId, TaskStatus status) {
+        if (flushMs <= 0) {
+            taskService.advanceStatus(List.of(taskId), status);
+            return;
+        }
+        pending.put(taskId, status);
+    }
+
+    /**
+     * 上报阶段内的进度，仅用于展示。
+     *
+     * @param stage   上报进度的阶段，任务已进入之后的阶段时不再写入
+     * @param percent 0-100，总量未知时为 null
+     */
+    public void reportProgress(Long taskId, TaskStatus stage, Integer percent, long progressMs, double speed) {
+        StageProgress progress = new StageProgress(stage, percent, progressMs, speed);
+        if (progressFlushMs <= 0) {
+            writeProgress(taskId, progress);
+            return;
+        }
+        pendingProgress.put(taskId, progress);
+    }
+
+    /**
+     * 阶段完成：写入检查点并切换到下一状态（最后一个阶段为 COMPLETED），同时清空阶段进度。
+     */
+    public void completeStage(Task checkpoint, TaskStatus nextStatus) {
+        pending.remove(checkpoint.getId());
+        pendingProgress.remove(checkpoint.getId());
+        taskService.saveStageResult(checkpoint, nextStatus);
+    }
+
+    public void fail(Long taskId, String error) {
+        pending.remove(taskId);
+        pendingProgress.remove(taskId);
+        taskService.updateTaskError(taskId, error);
+    }
+
+    /**
+     * 丢弃尚未写入的状态（如任务被退回队列）。
+     */
+    public void discard(Long taskId) {
+        pending.remove(taskId);
+        pendingProgress.remove(taskId);
+    }
+
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<TaskStatus, List<Long>> byStatus = new EnumMap<>(TaskStatus.class);
+        for (Long taskId : new ArrayList<>(pending.keySet())) {
+            TaskStatus status = pending.remove(taskId);
+            if (status != null) {
+                byStatus.computeIfAbsent(status, key -> new ArrayList<>()).add(taskId);
+            }
+        }
+        byStatus.forEach((status, taskIds) -> {
+            try {
+                taskService.advanceStatus(taskIds, status);
+            } catch (Exception e) {
+                // 状态仅用于展示，下一次阶段完成时会写入更新的状态
+                log.warn("[State] 批量写入 {} 个任务的 {} 状态失败: {}", taskIds.size(), status, e.getMessage());
+            }
+        });
+    }
+
+    void flushProgress() {
+        for (Long taskId : new ArrayList<>(pendingProgress.keySet())) {
+            StageProgress progress = pendingProgress.remove(taskId);
+            if (progress != null) {
+                writeProgress(taskId, progress);
+            }
+        }
+    }
+
+    private void writeProgress(Long taskId, StageProgress progress) {
+        try {
+            taskService.updateProgress(taskId, progress.stage(), progress.percent(), progress.progressMs(), progress.speed());
+        } catch (Exception e) {
+            log.warn("[State] 写入任务 {} 的进度失败: {}", taskId, e.getMessage());
+        }
+    }
+
+    private record StageProgress(TaskStatus stage, Integer percent, long progressMs, double speed) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.aviscribe.pipeline;
+
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 每个任务一个虚拟线程的阶段通道。并发数由许可控制，等待许可的任务数即为队列深度，
+ * 超过 maxConcurrency + queueCapacity 时拒绝。阻塞等待（sleep / HTTP / waitFor）不占用平台线程。
+ */
+public class VirtualStageLane implements StageLane {
+
+    private final String name;
+    private final Executor executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    public VirtualStageLane(String name, Executor executor, int maxConcurrency, int queueCapacity) {
+        this.name = name;
+        this.executor = executor;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.permits = new Semaphore(this.maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable work) {
+        if (shutdown) {
+            throw new TaskRejectedException("阶段通道已关闭: " + name);
+        }
+        long limit = (long) maxConcurrency + queueCapacity;
+        if (accepted.incrementAndGet() > limit) {
+            accepted.decrementAndGet();
+            throw new TaskRejectedException("阶段通道已满: " + name);
+        }
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted.decrementAndGet();
+                return;
+            }
+            active.incrementAndGet();
+            try {
+                work.run();
+            } finally {
+                active.decrementAndGet();
+                permits.release();
+                accepted.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public int queueDepth() {
+        return Math.max(0, accepted.get() - active.get());
+    }
+
+    @Override
+    public int activeCount() {
+        return active.get();
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+}
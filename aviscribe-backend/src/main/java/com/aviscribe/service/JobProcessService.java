@@ -1,8 +1,9 @@
 package com.aviscribe.service;
 
-import org.springframework.scheduling.annotation.Async;
-
 public interface JobProcessService {
-    @Async("taskExecutor")
+    /**
+     * 将已认领租约的任务投递到处理流水线，立即返回；各阶段在各自的线程池中依次执行，
+     * 结束（完成/失败）时释放租约。
+     */
     void processTask(Long taskId);
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.aviscribe.service;
+
+import com.aviscribe.entity.Task;
+
+/**
+ * 通过一次 ffprobe 读取媒体的时长与音视频流信息，按路径、大小与修改时间缓存。
+ */
+public interface MediaProbeService {
+
+    /**
+     * 探测失败（文件不存在、无法解析）时返回 null。
+     */
+    MediaInfo probe(String mediaPath);
+
+    /**
+     * 探测任务的源媒体（优先视频文件，其次音频文件）并写入任务的时长与源媒体信息，返回是否有更新。
+     * 已探测过（时长与容器格式均已存在）的任务直接返回 false。
+     */
+    boolean fillMediaInfo(Task task);
+
+    /**
+     * @param durationSeconds 时长（秒），未知时为 null
+     * @param formatName      容器格式，ffprobe 的 format_name（如 wav、mov,mp4,m4a,3gp,3g2,mj2）
+     * @param audioCodec      第一条音频流的编码，无音频时为 null
+     * @param sampleRate      第一条音频流的采样率
+     * @param channels        第一条音频流的声道数
+     * @param videoCodec      第一条视频流的编码，纯音频时为 null（封面图不计）
+     */
+    record MediaInfo(Double durationSeconds, String formatName, String audioCodec,
+                     Integer sampleRate, Integer channels, String videoCodec) {
+
+        public Integer roundedDurationSeconds() {
+            return durationSeconds != null ? (int) Math.round(durationSeconds) : null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.aviscribe.service;
+
+import com.aviscribe.entity.MediaResult;
+import com.aviscribe.entity.Task;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+public interface MediaResultService extends IService<MediaResult> {
+    /**
+     * 按哈希查找可复用的识别结果，依次尝试给定的哈希，未命中或未启用时返回 null。
+     */
+    MediaResult findResult(Long userId, String... mediaHashes);
+
+    /**
+     * 记录已完成任务的识别结果，以任务的上传内容哈希与音频哈希为键。
+     */
+    void saveResult(Task task);
+}
@@ -2,4 +2,16 @@ package com.aviscribe.service;
 
 import com.aviscribe.entity.Task;
 
-public interface SpeechToTextService { String transcribe(Task task, String audioPath); }
\ No newline at end of file
+import java.util.concurrent.CompletableFuture;
+
+public interface SpeechToTextService {
+    /**
+     * 上传并提交识别后立即返回，识别结果由后台轮询获得；取消返回的 future 即放弃等待。
+     */
+    CompletableFuture<String> transcribe(Task task, String audioPath);
+
+    /**
+     * 处理 NLS 识别完成回调，签名无效时抛出 AccessDeniedException；返回是否对应集群中某个等待中的识别。
+     */
+    boolean handleCallback(String nonce, String signature, String body);
+}
@@ -0,0 +1,28 @@
+package com.aviscribe.service;
+
+import com.aviscribe.entity.Task;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 语音识别引擎。结果统一为 NLS 录音文件识别的 JSON 格式（Sentences / Words，时间单位毫秒），
+ * 由 SttEngineRouter 按时长与负载为每个任务选择引擎。
+ */
+public interface SttEngine {
+    String name();
+
+    /**
+     * 是否已配置并可接收任务。
+     */
+    boolean isAvailable();
+
+    /**
+     * 已提交尚未返回结果的识别数，用于按负载选择引擎。
+     */
+    int pendingCount();
+
+    /**
+     * 提交识别后立即返回；取消返回的 future 即放弃识别。
+     */
+    CompletableFuture<String> transcribe(Task task, String audioPath) throws Exception;
+}
@@ -0,0 +1,20 @@
+package com.aviscribe.service;
+
+import com.aviscribe.entity.TaskSegment;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+import java.util.List;
+
+public interface TaskSegmentService extends IService<TaskSegment> {
+    /**
+     * 保存一个已完成分段的识别文本（取自识别结果 JSON 中各句），同一序号重复保存时覆盖。
+     */
+    void saveSegment(Long taskId, int seq, long startMs, long endMs, String result);
+
+    /**
+     * 返回序号大于 afterSeq 且连续的分段；中间有分段尚未完成时停在缺口之前，保证客户端按顺序拼接。
+     */
+    List<TaskSegment> listAfter(Long taskId, int afterSeq);
+
+    void deleteByTask(Long taskId);
+}
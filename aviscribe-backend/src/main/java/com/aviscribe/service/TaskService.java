@@ -1,16 +1,46 @@
 package com.aviscribe.service;
 
+import com.aviscribe.dto.PartialTranscriptDTO;
 import com.aviscribe.dto.TaskInfoDTO;
+import com.aviscribe.dto.TranscriptSentenceDTO;
 import com.aviscribe.entity.Task;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.springframework.data.domain.Pageable; // Spring Data Pageable
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface TaskService extends IService<Task> {
     TaskInfoDTO getTaskInfo(Long id);
+    PartialTranscriptDTO getPartialTranscript(Long id, int afterSeq); // 转录中已完成的分段
+    List<TranscriptSentenceDTO> getTranscriptByTime(Long id, long fromMs, long toMs, boolean withWords);
+    List<TranscriptSentenceDTO> getTranscriptByOffset(Long id, int fromOffset, int toOffset, boolean withWords);
     Page<TaskInfoDTO> listTasks(Pageable pageable);
     void deleteTask(Long id); // 需删除文件
     void updateTaskStatus(Long taskId, com.aviscribe.common.enums.TaskStatus status);
-    void updateTaskError(Long taskId, String error);
+    void updateTaskError(Long taskId, String error); // 标记失败并释放租约
+    int advanceStatus(Collection<Long> taskIds, com.aviscribe.common.enums.TaskStatus status);
+    void saveStageResult(Task checkpoint, com.aviscribe.common.enums.TaskStatus nextStatus);
+    void updateProgress(Long taskId, com.aviscribe.common.enums.TaskStatus stage, Integer percent, Long progressMs, Double speed);
     void updateTaskName(Long taskId, String taskName);
+    void cancelTask(Long taskId); // 取消未结束的任务，中止本节点上正在执行的阶段
+    void retryTask(Long taskId); // 失败或已取消的任务重新排队，从检查点继续
+    List<Long> retryTasks(Collection<Long> taskIds);
+    CompletableFuture<Void> probeMediaInfoAsync(Long taskId, String mediaPath); // 入队后在后台补齐时长与源媒体信息
+
+    // 持久化队列（租约）相关
+    List<Long> findClaimableTaskIds(int limit);
+    boolean claimTask(Long taskId, String owner, LocalDateTime leaseExpireTime);
+    List<Long> claimTasksSkipLocked(int limit, String owner, LocalDateTime leaseExpireTime);
+    List<Task> findClaimCandidates(int perUserLimit, int shortMediaSeconds);
+    List<Long> claimSelectedTasksSkipLocked(Collection<Long> taskIds, String owner, LocalDateTime leaseExpireTime);
+    int renewLeases(Collection<Long> taskIds, String owner, LocalDateTime leaseExpireTime);
+    List<Long> findLeasedTaskIds(Collection<Long> taskIds, String owner);
+    void releaseLease(Long taskId, String owner);
+    void requeueTask(Long taskId, String owner);
+    int requeueExpiredLeases(LocalDateTime now);
+    int requeueUnleasedTasks();
 }
\ No newline at end of file
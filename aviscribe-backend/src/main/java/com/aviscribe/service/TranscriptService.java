@@ -0,0 +1,26 @@
+package com.aviscribe.service;
+
+import com.aviscribe.dto.TranscriptSentenceDTO;
+import com.aviscribe.entity.TranscriptSentence;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+import java.util.List;
+
+public interface TranscriptService extends IService<TranscriptSentence> {
+    /**
+     * 解析识别结果并按句保存，覆盖该任务已有的句子。
+     */
+    void saveTranscript(Long taskId, String rawText);
+
+    /**
+     * 与 [fromMs, toMs) 时间范围有交集的句子；withWords 时只返回范围内的词。
+     */
+    List<TranscriptSentenceDTO> findByTime(Long taskId, long fromMs, long toMs, boolean withWords);
+
+    /**
+     * 与 [fromOffset, toOffset) 文本范围有交集的句子。
+     */
+    List<TranscriptSentenceDTO> findByOffset(Long taskId, int fromOffset, int toOffset, boolean withWords);
+
+    void deleteByTask(Long taskId);
+}
@@ -1,8 +1,12 @@
 package com.aviscribe.service;
 
+import com.aviscribe.common.enums.UserRole;
 import com.aviscribe.entity.User;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface UserService extends IService<User> {
     User findByUsername(String username);
     User findByPhone(String phone);
@@ -10,4 +14,5 @@ public interface UserService extends IService<User> {
     boolean phoneExists(String phone);
     void updateProfile(Long id, String displayName, String phone);
     void updatePassword(Long id, String passwordHash);
+    Map<Long, UserRole> findRoles(Collection<Long> ids);
 }
@@ -1,24 +1,51 @@
 package com.aviscribe.service.impl;
 
+import com.aviscribe.common.enums.AudioCodec;
+import com.aviscribe.common.enums.TaskStatus;
+import com.aviscribe.common.exception.TaskCancelledException;
 import com.aviscribe.common.utils.FfmpegUtils;
 import com.aviscribe.entity.Task;
+import com.aviscribe.pipeline.TaskCancellation;
+import com.aviscribe.pipeline.TaskStateWriter;
 import com.aviscribe.service.AudioExtractService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 @Service
+@Slf4j
 public class AudioExtractServiceImpl implements AudioExtractService {
 
     @Value("${aviscribe.file.upload-path}")
     private String uploadPath;
 
+    /**
+     * 提取的同时把 ffmpeg 输出分片上传到 OSS，识别时不再单独上传；仅对 mp3 / opus 中间格式生效。
+     */
+    @Value("${aviscribe.oss.stream-upload.enabled:false}")
+    private boolean streamUpload;
+
     private final FfmpegUtils ffmpegUtils;
+    private final OssUploadService ossUploadService;
+    private final TaskStateWriter stateWriter;
+    private final TaskCancellation taskCancellation;
 
-    public AudioExtractServiceImpl(FfmpegUtils ffmpegUtils) {
+    public AudioExtractServiceImpl(FfmpegUtils ffmpegUtils, OssUploadService ossUploadService,
+                                   TaskStateWriter stateWriter, TaskCancellation taskCancellation) {
         this.ffmpegUtils = ffmpegUtils;
+        this.ossUploadService = ossUploadService;
+        this.stateWriter = stateWriter;
+        this.taskCancellation = taskCancellation;
     }
 
     @Override
@@ -27,13 +54,121 @@ public class AudioExtractServiceImpl implements AudioExtractService {
         if (inputVideo == null || inputVideo.isEmpty()) {
             throw new IllegalArgumentException("任务缺少本地视频路径");
         }
-        Path out = Paths.get(uploadPath, "audio-" + task.getId() + ".wav");
+        task.setAudioObjectKey(null);
+        if (isSpeechReady(task)) {
+            log.info("[Task {}] 源文件已是 16kHz 单声道 {}，跳过音频提取", task.getId(), ffmpegUtils.getAudioCodec());
+            return inputVideo;
+        }
+
+        Path out = Paths.get(uploadPath, "audio-" + task.getId() + "." + ffmpegUtils.getAudioCodec().getExtension());
         String outputAudio = out.toString();
 
-        boolean success = ffmpegUtils.extractAudio(inputVideo, outputAudio);
+        if (streamUpload && ffmpegUtils.getAudioCodec().isCompressed()) {
+            String objectKey = extractAndUpload(task, inputVideo, out);
+            if (objectKey != null) {
+                task.setAudioObjectKey(objectKey);
+                return outputAudio;
+            }
+        }
+
+        boolean success = ffmpegUtils.extractAudio(inputVideo, outputAudio, progressReporter(task));
         if (!success) {
             throw new RuntimeException("FFmpeg 音频提取失败");
         }
         return outputAudio;
     }
-}
\ No newline at end of file
+
+    /**
+     * ffmpeg 输出一边写入本地文件（检查点、音频哈希、分段与本地识别仍需要），一边分片上传 OSS。
+     * 上传失败时清理已上传的对象并返回 null，由调用方改为普通提取，识别阶段再上传；任务取消或线程中断时直接抛出。
+     */
+    private String extractAndUpload(Task task, String inputVideo, Path out) {
+        String[] objectKey = new String[1];
+        boolean success;
+        try {
+            success = ffmpegUtils.extractAudioStream(inputVideo, progressReporter(task), stdout -> {
+                try (OutputStream file = Files.newOutputStream(out);
+                     InputStream tee = new TeeInputStream(stdout, file)) {
+                    objectKey[0] = ossUploadService.uploadStream(tee, out.getFileName().toString());
+                }
+            });
+        } catch (Exception e) {
+            // 上传完成后 ffmpeg 才失败时对象已存在，不会再被使用
+            ossUploadService.deleteQuietly(objectKey[0]);
+            if (e instanceof TaskCancelledException cancelled) {
+                throw cancelled;
+            }
+            // 取消时 ffmpeg 被结束，异常表现为读流失败，需按取消处理而不是重新提取
+            taskCancellation.checkCancelled();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new RuntimeException("音频提取被中断", e);
+            }
+            log.warn("[Task {}] 流式上传音频失败，改为先提取后上传: {}", task.getId(), e.getMessage());
+            return null;
+        }
+        if (!success) {
+            // ffmpeg 中途失败时已上传的是不完整音频
+            ossUploadService.deleteQuietly(objectKey[0]);
+            throw new RuntimeException("FFmpeg 音频提取失败");
+        }
+        return objectKey[0];
+    }
+
+    /**
+     * 源文件是否已是提取的目标格式：纯音频、16kHz 单声道，容器与编码即配置的中间格式，且扩展名一致（识别与分段按扩展名判断格式）。
+     */
+    private boolean isSpeechReady(Task task) {
+        AudioCodec codec = ffmpegUtils.getAudioCodec();
+        return task.getSourceVideoCodec() == null
+                && Integer.valueOf(16000).equals(task.getSourceSampleRate())
+                && Integer.valueOf(1).equals(task.getSourceChannels())
+                && codec.matches(task.getSourceFormat(), task.getSourceAudioCodec())
+                && task.getVideoLocalPath().toLowerCase(Locale.ROOT).endsWith("." + codec.getExtension());
+    }
+
+    /**
+     * ffmpeg 进度写到任务上；已知时长时换算为百分比（封顶 99，完成由阶段切换体现）。
+     */
+    private Consumer<FfmpegUtils.Progress> progressReporter(Task task) {
+        Integer duration = task.getDurationSeconds();
+        long totalMs = duration != null && duration > 0 ? duration * 1000L : 0;
+        return progress -> {
+            Integer percent = totalMs > 0 ? (int) Math.min(99, progress.outTimeMs() * 100 / totalMs) : null;
+            stateWriter.reportProgress(task.getId(), TaskStatus.EXTRACTING_AUDIO, percent,
+                    progress.outTimeMs(), progress.speed());
+        };
+    }
+
+    /**
+     * 读取的同时把数据写入另一个输出流。
+     */
+    private static final class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        private TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                copy.write(buffer, offset, n);
+            }
+            return n;
+        }
+    }
+}
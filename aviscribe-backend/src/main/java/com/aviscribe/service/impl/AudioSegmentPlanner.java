@@ -0,0 +1,59 @@
+package com.aviscribe.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按静音区间规划长音频的切分点：每段长度不超过 maxSegmentSeconds，
+ * 尽量在 [minSegmentSeconds, maxSegmentSeconds] 范围内最靠后的静音中点切开，找不到静音时硬切。
+ */
+final class AudioSegmentPlanner {
+
+    private AudioSegmentPlanner() {
+    }
+
+    /**
+     * @param totalSeconds 音频总时长
+     * @param silences     静音区间 [开始秒, 结束秒]，按开始时间升序
+     * @return 各段 [开始秒, 结束秒]，首尾相接覆盖整段音频
+     */
+    static List<double[]> plan(double totalSeconds, List<double[]> silences,
+                               double maxSegmentSeconds, double minSegmentSeconds) {
+        return plan(totalSeconds, silences, maxSegmentSeconds, maxSegmentSeconds, minSegmentSeconds);
+    }
+
+    /**
+     * 首段单独限长：首段越短越早返回识别结果，可以更快展示部分转写文本。
+     *
+     * @param firstSegmentSeconds 首段最大长度，不大于 0 时与其余段相同
+     */
+    static List<double[]> plan(double totalSeconds, List<double[]> silences, double firstSegmentSeconds,
+                               double maxSegmentSeconds, double minSegmentSeconds) {
+        if (!(maxSegmentSeconds > 0)) {
+            // 段长不为正时切点不会前进
+            throw new IllegalArgumentException("maxSegmentSeconds 需大于 0: " + maxSegmentSeconds);
+        }
+        List<double[]> segments = new ArrayList<>();
+        double start = 0;
+        double limit = firstSegmentSeconds > 0 ? Math.min(firstSegmentSeconds, maxSegmentSeconds) : maxSegmentSeconds;
+        while (totalSeconds - start > limit) {
+            double earliest = start + (segments.isEmpty() ? Math.min(minSegmentSeconds, limit / 2) : minSegmentSeconds);
+            double latest = start + limit;
+            double cut = latest;
+            for (double[] silence : silences) {
+                double middle = (silence[0] + silence[1]) / 2;
+                if (middle > latest) {
+                    break;
+                }
+                if (middle >= earliest && middle > start) {
+                    cut = middle;
+                }
+            }
+            segments.add(new double[]{start, cut});
+            start = cut;
+            limit = maxSegmentSeconds;
+        }
+        segments.add(new double[]{start, totalSeconds});
+        return segments;
+    }
+}
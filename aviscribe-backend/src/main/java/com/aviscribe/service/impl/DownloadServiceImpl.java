@@ -1,5 +1,6 @@
 package com.aviscribe.service.impl;
 
+import com.aviscribe.pipeline.TaskCancellation;
 import com.aviscribe.service.DownloadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +43,12 @@ public class DownloadServiceImpl implements DownloadService {
             .followRedirects(HttpClient.Redirect.NORMAL)
             .build();
 
+    private final TaskCancellation taskCancellation;
+
+    public DownloadServiceImpl(TaskCancellation taskCancellation) {
+        this.taskCancellation = taskCancellation;
+    }
+
     @Override
     public String download(String url) throws Exception {
         log.info("开始下载远程视频: {}", url);
@@ -101,8 +108,14 @@ public class DownloadServiceImpl implements DownloadService {
 
         try (InputStream in = response.body();
              OutputStream out = Files.newOutputStream(target)) {
-            in.transferTo(out);
-        } catch (IOException e) {
+            // 分块写入，块间检查任务是否已取消（阻塞读不响应线程中断）
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                taskCancellation.checkCancelled();
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
             // 失败时清理半成品文件
             try {
                 Files.deleteIfExists(target);
@@ -143,13 +156,14 @@ public class DownloadServiceImpl implements DownloadService {
 
         Process process;
         try {
-            process = pb.start();
+            process = taskCancellation.track(pb.start());
         } catch (IOException e) {
             throw new IllegalStateException("启动 yt-dlp 失败，请确认已安装并在 PATH 中，或在配置中正确设置 aviscribe.downloader.yt-dlp-path", e);
         }
 
         // 读取输出日志，便于调试
         StringBuilder output = new StringBuilder();
+        int exitCode;
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
             String line;
@@ -157,9 +171,11 @@ public class DownloadServiceImpl implements DownloadService {
                 output.append(line).append(System.lineSeparator());
                 log.info("yt-dlp> {}", line);
             }
+            exitCode = process.waitFor();
+        } finally {
+            taskCancellation.untrack(process);
         }
-
-        int exitCode = process.waitFor();
+        taskCancellation.checkCancelled();
         if (exitCode != 0) {
             log.error("yt-dlp 退出码: {}, 输出:\n{}", exitCode, output);
             throw new IllegalStateException("yt-dlp 下载失败, exitCode=" + exitCode + ", output=" + output);
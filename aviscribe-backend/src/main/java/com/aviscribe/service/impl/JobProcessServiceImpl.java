@@ -2,13 +2,27 @@ package com.aviscribe.service.impl;
 
 import com.aviscribe.common.enums.SourceType;
 import com.aviscribe.common.enums.TaskStatus;
-import com.aviscribe.common.utils.FfmpegUtils;
+import com.aviscribe.common.exception.TaskCancelledException;
+import com.aviscribe.common.utils.FileUtils;
+import com.aviscribe.common.utils.TextUtils;
+import com.aviscribe.entity.MediaResult;
 import com.aviscribe.entity.Task;
+import com.aviscribe.pipeline.PipelineStage;
+import com.aviscribe.pipeline.StageExecutors;
+import com.aviscribe.pipeline.TaskCancellation;
+import com.aviscribe.pipeline.TaskStateWriter;
+import com.aviscribe.pipeline.TaskQueue;
 import com.aviscribe.service.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @Service
 public class JobProcessServiceImpl implements JobProcessService {
 
@@ -19,134 +33,305 @@ public class JobProcessServiceImpl implements JobProcessService {
     private final SpeechToTextService speechToTextService;
     private final TextFormatService textFormatService;
     private final DownloadService downloadService;
-    private final FfmpegUtils ffmpegUtils;
+    private final MediaProbeService mediaProbeService;
+    private final StageExecutors stageExecutors;
+    private final TaskQueue taskQueue;
+    private final MediaResultService mediaResultService;
+    private final FileUtils fileUtils;
+    private final TaskCancellation taskCancellation;
+    private final TaskStateWriter stateWriter;
+    private final TranscriptService transcriptService;
 
     public JobProcessServiceImpl(TaskService taskService,
                                  AudioExtractService audioExtractService,
                                  SpeechToTextService speechToTextService,
                                  TextFormatService textFormatService,
                                  DownloadService downloadService,
-                                 FfmpegUtils ffmpegUtils) {
+                                 MediaProbeService mediaProbeService,
+                                 StageExecutors stageExecutors,
+                                 TaskQueue taskQueue,
+                                 MediaResultService mediaResultService,
+                                 FileUtils fileUtils,
+                                 TaskCancellation taskCancellation,
+                                 TaskStateWriter stateWriter,
+                                 TranscriptService transcriptService) {
         this.taskService = taskService;
         this.audioExtractService = audioExtractService;
         this.speechToTextService = speechToTextService;
         this.textFormatService = textFormatService;
         this.downloadService = downloadService;
-        this.ffmpegUtils = ffmpegUtils;
+        this.mediaProbeService = mediaProbeService;
+        this.stageExecutors = stageExecutors;
+        this.taskQueue = taskQueue;
+        this.mediaResultService = mediaResultService;
+        this.fileUtils = fileUtils;
+        this.taskCancellation = taskCancellation;
+        this.stateWriter = stateWriter;
+        this.transcriptService = transcriptService;
     }
 
     @Override
-    @org.springframework.scheduling.annotation.Async("taskExecutor")
     public void processTask(Long taskId) {
-        log.info("[Task {}] 开始处理...", taskId);
         Task task = taskService.getById(taskId);
+        if (task == null) {
+            log.warn("[Task {}] 任务不存在，跳过处理", taskId);
+            taskQueue.release(taskId);
+            return;
+        }
+        // 本次认领的执行，随各阶段传递，旧执行的收尾不会影响重新认领后的执行
+        TaskCancellation.Handle run = taskQueue.run(taskId);
+        if (task.getLastCompletedStage() == null && reuseCachedResult(task, task.getContentHash())) {
+            // 排队期间相同内容的任务已完成，直接复用其结果
+            Task checkpoint = new Task();
+            checkpoint.setId(taskId);
+            fillCachedColumns(task, checkpoint);
+            checkpoint.setLastCompletedStage(PipelineStage.FORMAT.getStatus().getCode());
+            stateWriter.completeStage(checkpoint, TaskStatus.COMPLETED);
+            taskQueue.finish(taskId, run);
+            log.info("[Task {}] 命中内容哈希，复用已有识别结果", taskId);
+            return;
+        }
+        PipelineStage firstStage = resumeStage(task);
+        if (firstStage == null) {
+            // 所有阶段均已有检查点（例如在结束前被中断），直接标记完成
+            Task checkpoint = new Task();
+            checkpoint.setId(taskId);
+            stateWriter.completeStage(checkpoint, TaskStatus.COMPLETED);
+            taskQueue.finish(taskId, run);
+            return;
+        }
+        if (task.getLastCompletedStage() != null) {
+            log.info("[Task {}] 从检查点恢复，自 {} 阶段继续处理...", taskId, firstStage);
+        } else {
+            log.info("[Task {}] 开始处理...", taskId);
+        }
+        // 后续阶段的状态在上一阶段完成时随检查点一并写入，只有首个阶段需要单独写状态
+        stateWriter.enterStage(taskId, firstStage.getStatus());
+        dispatch(firstStage, task, run);
+    }
 
-        try {
-            // 1. 如果是 URL 源，先从网络下载到本地，填充 videoLocalPath
-            if (task.getSourceType() == SourceType.URL.getValue()) {
-                taskService.updateTaskStatus(taskId, TaskStatus.DOWNLOADING);
-                log.info("[Task {}] URL 下载阶段，开始下载远程视频...", taskId);
-
-                String videoUrl = task.getVideoUrl();
-                if (videoUrl == null || videoUrl.isBlank()) {
-                    throw new IllegalArgumentException("任务缺少视频 URL");
+    /**
+     * 根据阶段检查点与仍然存在的中间产物，确定需要从哪个阶段开始处理；全部完成时返回 null。
+     * 从后往前找到最近一个检查点有效的阶段，从它的下一阶段继续。
+     */
+    private PipelineStage resumeStage(Task task) {
+        PipelineStage first = task.getSourceType() == SourceType.URL.getValue()
+                ? PipelineStage.DOWNLOAD
+                : PipelineStage.EXTRACT;
+        Integer checkpoint = task.getLastCompletedStage();
+        if (checkpoint != null) {
+            PipelineStage[] stages = PipelineStage.values();
+            for (int i = stages.length - 1; i >= first.ordinal(); i--) {
+                PipelineStage stage = stages[i];
+                if (checkpoint >= stage.getStatus().getCode() && artifactAvailable(task, stage)) {
+                    return stage.next();
                 }
-
-                String localPath = downloadService.download(videoUrl);
-                task.setVideoLocalPath(localPath);
-                taskService.updateById(task);
             }
+        }
+        return first;
+    }
 
-            // 2. 音频提取
-            taskService.updateTaskStatus(taskId, TaskStatus.EXTRACTING_AUDIO);
-            log.info("[Task {}] 正在提取音频...", taskId);
-            String audioPath = audioExtractService.extractAudio(task);
-            task.setAudioLocalPath(audioPath);
-            taskService.updateById(task);
-            updateDurationIfNeeded(task);
-
-            // 3. 语音转文本
-            taskService.updateTaskStatus(taskId, TaskStatus.TRANSCRIBING);
-            log.info("[Task {}] 正在语音识别...", taskId);
-            String rawText = speechToTextService.transcribe(task, audioPath);
-            task.setRawText(rawText);
-            taskService.updateById(task);
-
-            // 4. 文本排版
-            taskService.updateTaskStatus(taskId, TaskStatus.FORMATTING);
-            log.info("[Task {}] 正在文本排版...", taskId);
-            String formattedText = textFormatService.format(task, rawText);
-            task.setFormattedText(formattedText);
-            if (!hasText(task.getTaskName())) {
-                String derivedTitle = extractTitleFromFormattedText(formattedText);
-                if (hasText(derivedTitle)) {
-                    task.setTaskName(derivedTitle);
-                }
-            }
-            taskService.updateById(task);
+    private boolean artifactAvailable(Task task, PipelineStage stage) {
+        return switch (stage) {
+            case DOWNLOAD -> fileExists(task.getVideoLocalPath());
+            case EXTRACT -> fileExists(task.getAudioLocalPath());
+            case TRANSCRIBE -> task.getRawText() != null;
+            case FORMAT -> task.getFormattedText() != null;
+        };
+    }
 
-            // 5. 完成
-            taskService.updateTaskStatus(taskId, TaskStatus.COMPLETED);
-            log.info("[Task {}] 处理完成。", taskId);
+    private boolean fileExists(String path) {
+        return TextUtils.hasText(path) && Files.isRegularFile(Paths.get(path));
+    }
 
-        } catch (Exception e) {
-            log.error("[Task {}] 处理失败: {}", taskId, e.getMessage(), e);
-            taskService.updateTaskError(taskId, e.getMessage());
+    private void dispatch(PipelineStage stage, Task task, TaskCancellation.Handle run) {
+        try {
+            stageExecutors.submit(stage, () -> runStage(stage, task, run));
+        } catch (TaskRejectedException e) {
+            log.warn("[Task {}] {} 阶段队列已满，退回任务队列稍后重试", task.getId(), stage);
+            stateWriter.discard(task.getId());
+            taskQueue.requeue(task.getId(), run);
         }
     }
 
-    private boolean hasText(String value) {
-        return value != null && !value.trim().isEmpty();
+    /**
+     * 在当前阶段的线程池中执行一个阶段。转录阶段只负责提交，结果由轮询器异步回调，
+     * 不占用阶段线程；阶段完成后写入产物与检查点，再交接给下一阶段的线程池。
+     */
+    private void runStage(PipelineStage stage, Task task, TaskCancellation.Handle run) {
+        Long taskId = task.getId();
+        if (!taskQueue.holds(taskId, run)) {
+            log.warn("[Task {}] 本节点已不再持有任务租约，放弃 {} 阶段", taskId, stage);
+            taskCancellation.close(taskId, run);
+            return;
+        }
+        // 只写入本阶段产生的列
+        Task checkpoint = new Task();
+        checkpoint.setId(taskId);
+        CompletableFuture<PipelineStage> result;
+        try {
+            taskCancellation.begin(run);
+            // 阶段可能一次完成后续阶段（例如命中缓存的识别结果），返回实际完成到的阶段
+            result = switch (stage) {
+                case DOWNLOAD -> CompletableFuture.completedFuture(download(task, checkpoint));
+                case EXTRACT -> CompletableFuture.completedFuture(extractAudio(task, checkpoint));
+                case TRANSCRIBE -> transcribe(task, checkpoint);
+                case FORMAT -> CompletableFuture.completedFuture(format(task, checkpoint));
+            };
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        } finally {
+            taskCancellation.end();
+        }
+        result.whenComplete((completed, error) -> finishStage(stage, task, run, checkpoint, completed, error));
     }
 
-    private String extractTitleFromFormattedText(String formattedText) {
-        if (formattedText == null) {
-            return null;
+    private void finishStage(PipelineStage stage, Task task, TaskCancellation.Handle run, Task checkpoint,
+                             PipelineStage completed, Throwable error) {
+        Long taskId = task.getId();
+        PipelineStage next = null;
+        // 取消时部分调用（如排版）会吞掉中断并返回降级结果，不能把它当作检查点
+        if (error == null && taskCancellation.isCancelled(run)) {
+            error = new TaskCancelledException(taskId);
         }
-        String[] lines = formattedText.split("\\r?\\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if (trimmed.isEmpty()) {
-                continue;
-            }
-            if (trimmed.startsWith("#")) {
-                String heading = trimmed.replaceFirst("^#+\\s*", "").trim();
-                if (!heading.isEmpty()) {
-                    return truncate(heading, 200);
-                }
+        if (error == null) {
+            try {
+                checkpoint.setLastCompletedStage(completed.getStatus().getCode());
+                task.setLastCompletedStage(checkpoint.getLastCompletedStage());
+                next = completed.next();
+                // 产物、检查点与下一状态合并为一次更新；最后一个阶段同时标记完成并释放租约
+                stateWriter.completeStage(checkpoint, next != null ? next.getStatus() : TaskStatus.COMPLETED);
+            } catch (Exception e) {
+                error = e;
             }
         }
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if (!trimmed.isEmpty()) {
-                return truncate(trimmed, 200);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (taskCancellation.isCancelled(run)) {
+                // 取消时租约已被清除（或已转交其他节点），无需再写库
+                log.info("[Task {}] 已取消，中止 {} 阶段", taskId, stage);
+            } else {
+                log.error("[Task {}] 处理失败: {}", taskId, cause.getMessage(), cause);
+                stateWriter.fail(taskId, cause.getMessage());
             }
+            taskQueue.finish(taskId, run);
+            return;
+        }
+
+        if (next != null) {
+            dispatch(next, task, run);
+        } else {
+            taskQueue.finish(taskId, run);
+            log.info("[Task {}] 处理完成。", taskId);
         }
-        return null;
     }
 
-    private String truncate(String input, int maxLength) {
-        if (input == null || input.length() <= maxLength) {
-            return input;
+    // 1. 如果是 URL 源，先从网络下载到本地，填充 videoLocalPath
+    private PipelineStage download(Task task, Task checkpoint) throws Exception {
+        log.info("[Task {}] URL 下载阶段，开始下载远程视频...", task.getId());
+        String videoUrl = task.getVideoUrl();
+        if (videoUrl == null || videoUrl.isBlank()) {
+            throw new IllegalArgumentException("任务缺少视频 URL");
         }
-        return input.substring(0, maxLength);
+
+        String localPath = downloadService.download(videoUrl);
+        task.setVideoLocalPath(localPath);
+        checkpoint.setVideoLocalPath(localPath);
+        return PipelineStage.DOWNLOAD;
     }
 
-    private void updateDurationIfNeeded(Task task) {
-        if (task == null) {
-            return;
+    // 2. 音频提取
+    private PipelineStage extractAudio(Task task, Task checkpoint) {
+        log.info("[Task {}] 正在提取音频...", task.getId());
+        // 先探测源媒体：时长用于提取进度，格式决定能否跳过提取
+        if (mediaProbeService.fillMediaInfo(task)) {
+            checkpoint.setDurationSeconds(task.getDurationSeconds());
+            checkpoint.setSourceFormat(task.getSourceFormat());
+            checkpoint.setSourceAudioCodec(task.getSourceAudioCodec());
+            checkpoint.setSourceVideoCodec(task.getSourceVideoCodec());
+            checkpoint.setSourceSampleRate(task.getSourceSampleRate());
+            checkpoint.setSourceChannels(task.getSourceChannels());
         }
-        if (task.getDurationSeconds() != null && task.getDurationSeconds() > 0) {
-            return;
+        String audioPath = audioExtractService.extractAudio(task);
+        task.setAudioLocalPath(audioPath);
+        checkpoint.setAudioLocalPath(audioPath);
+        checkpoint.setAudioObjectKey(task.getAudioObjectKey());
+        // 不同容器/来源的同一段音频提取结果一致，按音频哈希再查一次
+        String audioHash = fileUtils.sha256(audioPath);
+        task.setAudioHash(audioHash);
+        checkpoint.setAudioHash(audioHash);
+        if (reuseCachedResult(task, audioHash)) {
+            fillCachedColumns(task, checkpoint);
+            log.info("[Task {}] 命中音频哈希，跳过识别与排版", task.getId());
+            return PipelineStage.FORMAT;
         }
-        String mediaPath = hasText(task.getVideoLocalPath()) ? task.getVideoLocalPath() : task.getAudioLocalPath();
-        if (!hasText(mediaPath)) {
-            return;
+        return PipelineStage.EXTRACT;
+    }
+
+    // 3. 语音转文本（提交后异步等待结果）
+    private CompletableFuture<PipelineStage> transcribe(Task task, Task checkpoint) {
+        log.info("[Task {}] 正在语音识别...", task.getId());
+        // 识别结果由轮询线程、回调或取消请求的线程完成，解析与写库切回转录阶段的线程执行，不阻塞轮询
+        return speechToTextService.transcribe(task, task.getAudioLocalPath())
+                .thenApplyAsync(rawText -> {
+                    task.setRawText(rawText);
+                    checkpoint.setRawText(rawText);
+                    saveTranscript(task);
+                    return PipelineStage.TRANSCRIBE;
+                }, stageExecutors.executor(PipelineStage.TRANSCRIBE));
+    }
+
+    // 4. 文本排版
+    private PipelineStage format(Task task, Task checkpoint) {
+        log.info("[Task {}] 正在文本排版...", task.getId());
+        String formattedText = textFormatService.format(task, task.getRawText());
+        task.setFormattedText(formattedText);
+        checkpoint.setFormattedText(formattedText);
+        if (!TextUtils.hasText(task.getTaskName())) {
+            String derivedTitle = TextUtils.extractTitle(formattedText);
+            if (TextUtils.hasText(derivedTitle)) {
+                task.setTaskName(derivedTitle);
+                checkpoint.setTaskName(derivedTitle);
+            }
         }
-        Integer duration = ffmpegUtils.getMediaDurationSeconds(mediaPath);
-        if (duration != null && duration > 0) {
-            task.setDurationSeconds(duration);
-            taskService.updateById(task);
+        mediaResultService.saveResult(task);
+        return PipelineStage.FORMAT;
+    }
+
+    /**
+     * 按哈希查找可复用的识别结果，命中时写入内存中的任务。
+     */
+    private boolean reuseCachedResult(Task task, String mediaHash) {
+        MediaResult cached = mediaResultService.findResult(task.getUserId(), mediaHash);
+        if (cached == null) {
+            return false;
         }
+        task.setRawText(cached.getRawText());
+        task.setFormattedText(cached.getFormattedText());
+        if (task.getDurationSeconds() == null && cached.getDurationSeconds() != null) {
+            task.setDurationSeconds(cached.getDurationSeconds());
+        }
+        if (!TextUtils.hasText(task.getTaskName())) {
+            task.setTaskName(TextUtils.extractTitle(cached.getFormattedText()));
+        }
+        return true;
+    }
+
+    /**
+     * 按句保存识别结果供时间范围查询；失败时查询接口会从 raw_text 补建，不影响主流程。
+     */
+    private void saveTranscript(Task task) {
+        try {
+            transcriptService.saveTranscript(task.getId(), task.getRawText());
+        } catch (Exception e) {
+            log.warn("[Task {}] 按句保存识别结果失败: {}", task.getId(), e.getMessage());
+        }
+    }
+
+    private void fillCachedColumns(Task task, Task checkpoint) {
+        checkpoint.setRawText(task.getRawText());
+        checkpoint.setFormattedText(task.getFormattedText());
+        checkpoint.setDurationSeconds(task.getDurationSeconds());
+        checkpoint.setTaskName(task.getTaskName());
     }
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.entity.Task;
+import com.aviscribe.service.SttEngine;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 本机离线识别：以子进程运行 whisper.cpp 命令行（whisper-cli），不经过 OSS 与网络，适合短音频。
+ * 输出的 JSON 转换为与 NLS 相同的 Sentences 格式，下游处理无需区分引擎。
+ */
+@Component
+@Slf4j
+public class LocalSttEngine implements SttEngine {
+
+    public static final String NAME = "local";
+
+    @Value("${aviscribe.stt.local.enabled:false}")
+    private boolean enabled;
+
+    @Value("${aviscribe.stt.local.command:whisper-cli}")
+    private String command;
+
+    @Value("${aviscribe.stt.local.model:}")
+    private String model;
+
+    @Value("${aviscribe.stt.local.language:zh}")
+    private String language;
+
+    /**
+     * 每个识别进程使用的 CPU 线程数。
+     */
+    @Value("${aviscribe.stt.local.threads:4}")
+    private int threads;
+
+    /**
+     * 同时运行的识别进程上限，超出的任务在本地排队。
+     */
+    @Value("${aviscribe.stt.local.max-concurrent:1}")
+    private int maxConcurrent;
+
+    @Value("${aviscribe.stt.local.timeout-seconds:600}")
+    private long timeoutSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger pending = new AtomicInteger();
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        int workers = Math.max(1, maxConcurrent);
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "stt-local-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return enabled && model != null && !model.isBlank();
+    }
+
+    @Override
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public CompletableFuture<String> transcribe(Task task, String audioPath) {
+        Long taskId = task != null ? task.getId() : null;
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AtomicReference<Process> running = new AtomicReference<>();
+        // 放弃识别时结束进程
+        future.whenComplete((result, error) -> {
+            Process process = running.get();
+            if (future.isCancelled() && process != null) {
+                destroyTree(process);
+            }
+        });
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                if (!future.isDone()) {
+                    future.complete(recognize(taskId, audioPath, running, future));
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+        return future;
+    }
+
+    private String recognize(Long taskId, String audioPath, AtomicReference<Process> running,
+                             CompletableFuture<String> future) throws Exception {
+        File audioFile = new File(audioPath);
+        String outputBase = new File(audioFile.getParentFile(), audioFile.getName() + ".local").getPath();
+        File outputFile = new File(outputBase + ".json");
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(command);
+        cmd.add("-m");
+        cmd.add(model);
+        cmd.add("-f");
+        cmd.add(audioPath);
+        cmd.add("-l");
+        cmd.add(language);
+        cmd.add("-t");
+        cmd.add(String.valueOf(Math.max(1, threads)));
+        cmd.add("-oj");
+        cmd.add("-of");
+        cmd.add(outputBase);
+        cmd.add("-np");
+
+        log.info("[STT] 本地识别开始, taskId={}, audio={}", taskId, audioPath);
+        long start = System.currentTimeMillis();
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+        running.set(process);
+        try {
+            if (future.isCancelled()) {
+                destroyTree(process);
+            }
+            // 输出另起线程读取：若在当前线程读到 EOF 再 waitFor，进程挂起时超时永远不会生效
+            InputStream output = process.getInputStream();
+            Thread outputReader = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(output, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        log.debug("whisper> {}", line);
+                    }
+                } catch (IOException ignored) {
+                    // 进程被结束
+                }
+            }, "stt-local-output");
+            outputReader.setDaemon(true);
+            outputReader.start();
+            boolean exited;
+            try {
+                exited = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                destroyTree(process);
+                throw e;
+            }
+            if (!exited) {
+                destroyTree(process);
+                throw new RuntimeException("本地识别超时(" + timeoutSeconds + "s)");
+            }
+            outputReader.join(TimeUnit.SECONDS.toMillis(5));
+            if (process.exitValue() != 0) {
+                throw new RuntimeException("本地识别进程退出码 " + process.exitValue());
+            }
+            String result = toNlsResult(objectMapper.readTree(outputFile));
+            log.info("[STT] 本地识别完成, taskId={}, 耗时 {} ms", taskId, System.currentTimeMillis() - start);
+            return result;
+        } finally {
+            outputFile.delete();
+        }
+    }
+
+    /**
+     * 结束识别进程及其子进程。
+     */
+    private static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * whisper.cpp 的 transcription[].offsets(from/to 毫秒) 与 text 转为 NLS 的 Sentences。
+     */
+    static String toNlsResult(JsonNode root) {
+        JSONArray sentences = new JSONArray();
+        for (JsonNode item : root.path("transcription")) {
+            String text = item.path("text").asText("").trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            JSONObject sentence = new JSONObject(true);
+            sentence.put("BeginTime", item.path("offsets").path("from").asLong());
+            sentence.put("EndTime", item.path("offsets").path("to").asLong());
+            sentence.put("Text", text);
+            sentence.put("ChannelId", 0);
+            sentences.add(sentence);
+        }
+        JSONObject result = new JSONObject(true);
+        result.put("Sentences", sentences);
+        return result.toJSONString();
+    }
+}
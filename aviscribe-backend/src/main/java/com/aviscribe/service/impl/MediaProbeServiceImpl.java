@@ -0,0 +1,198 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.common.utils.TextUtils;
+import com.aviscribe.entity.Task;
+import com.aviscribe.service.MediaProbeService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class MediaProbeServiceImpl implements MediaProbeService {
+
+    private static final int MAX_CACHE_ENTRIES = 1024;
+
+    @Value("${aviscribe.ffprobe.path:ffprobe}")
+    private String ffprobePath;
+
+    @Value("${aviscribe.ffprobe.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 按访问顺序淘汰；文件被覆盖后大小或修改时间变化，旧条目自然失效。
+     */
+    private final Map<CacheKey, MediaInfo> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, MediaInfo> eldest) {
+            return size() > MAX_CACHE_ENTRIES;
+        }
+    };
+
+    private record CacheKey(String path, long size, long lastModified) {
+    }
+
+    @Override
+    public MediaInfo probe(String mediaPath) {
+        if (!TextUtils.hasText(mediaPath)) {
+            return null;
+        }
+        File file = new File(mediaPath);
+        if (!file.isFile()) {
+            return null;
+        }
+        CacheKey key = new CacheKey(file.getAbsolutePath(), file.length(), file.lastModified());
+        synchronized (cache) {
+            MediaInfo cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        MediaInfo info = runProbe(mediaPath);
+        if (info != null) {
+            synchronized (cache) {
+                cache.put(key, info);
+            }
+        }
+        return info;
+    }
+
+    @Override
+    public boolean fillMediaInfo(Task task) {
+        if (task == null) {
+            return false;
+        }
+        boolean hasDuration = task.getDurationSeconds() != null && task.getDurationSeconds() > 0;
+        if (hasDuration && task.getSourceFormat() != null) {
+            return false;
+        }
+        String mediaPath = TextUtils.hasText(task.getVideoLocalPath()) ? task.getVideoLocalPath() : task.getAudioLocalPath();
+        MediaInfo info = probe(mediaPath);
+        if (info == null) {
+            return false;
+        }
+        Integer duration = info.roundedDurationSeconds();
+        if (!hasDuration && duration != null && duration > 0) {
+            task.setDurationSeconds(duration);
+        }
+        task.setSourceFormat(info.formatName());
+        task.setSourceAudioCodec(info.audioCodec());
+        task.setSourceVideoCodec(info.videoCodec());
+        task.setSourceSampleRate(info.sampleRate());
+        task.setSourceChannels(info.channels());
+        return true;
+    }
+
+    private MediaInfo runProbe(String mediaPath) {
+        List<String> command = new ArrayList<>();
+        command.add(ffprobePath);
+        command.add("-v");
+        command.add("error");
+        command.add("-print_format");
+        command.add("json");
+        command.add("-show_format");
+        command.add("-show_streams");
+        command.add(mediaPath);
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = null;
+        try {
+            process = pb.start();
+            // stdout 另起线程读取：在当前线程读到 EOF 再 waitFor，ffprobe 挂起时超时不会生效
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            InputStream stdout = process.getInputStream();
+            Thread reader = new Thread(() -> {
+                try (stdout) {
+                    stdout.transferTo(output);
+                } catch (IOException ignored) {
+                    // 进程被结束
+                }
+            }, "ffprobe-stdout");
+            reader.setDaemon(true);
+            reader.start();
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                log.warn("ffprobe timed out when probing {}", mediaPath);
+                return null;
+            }
+            reader.join(TimeUnit.SECONDS.toMillis(5));
+            if (process.exitValue() != 0 || output.size() == 0) {
+                log.warn("ffprobe exited with code {} when probing {}", process.exitValue(), mediaPath);
+                return null;
+            }
+            return toMediaInfo(objectMapper.readTree(output.toByteArray()));
+        } catch (IOException e) {
+            log.error("Failed to probe media {}", mediaPath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("ffprobe process interrupted for {}", mediaPath, e);
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            }
+        }
+        return null;
+    }
+
+    static MediaInfo toMediaInfo(JsonNode root) {
+        JsonNode format = root.path("format");
+        Double duration = parseDouble(format.path("duration").asText(null));
+        JsonNode audio = null;
+        JsonNode video = null;
+        for (JsonNode stream : root.path("streams")) {
+            String type = stream.path("codec_type").asText();
+            if (audio == null && "audio".equals(type)) {
+                audio = stream;
+            } else if (video == null && "video".equals(type)
+                    && stream.path("disposition").path("attached_pic").asInt() == 0) {
+                video = stream;
+            }
+        }
+        if (duration == null && audio != null) {
+            duration = parseDouble(audio.path("duration").asText(null));
+        }
+        return new MediaInfo(duration,
+                format.path("format_name").asText(null),
+                audio != null ? audio.path("codec_name").asText(null) : null,
+                audio != null ? parseInteger(audio.path("sample_rate").asText(null)) : null,
+                audio != null && audio.hasNonNull("channels") ? audio.path("channels").asInt() : null,
+                video != null ? video.path("codec_name").asText(null) : null);
+    }
+
+    private static Double parseDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null; // N/A
+        }
+    }
+
+    private static Integer parseInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
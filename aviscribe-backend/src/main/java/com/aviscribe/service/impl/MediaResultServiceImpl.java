@@ -0,0 +1,90 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.common.utils.TextUtils;
+import com.aviscribe.entity.MediaResult;
+import com.aviscribe.entity.Task;
+import com.aviscribe.mapper.MediaResultMapper;
+import com.aviscribe.pipeline.DedupProperties;
+import com.aviscribe.service.MediaResultService;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@Service
+@Slf4j
+public class MediaResultServiceImpl extends ServiceImpl<MediaResultMapper, MediaResult> implements MediaResultService {
+
+    private static final long GLOBAL_SCOPE = 0L;
+
+    private final DedupProperties properties;
+
+    public MediaResultServiceImpl(DedupProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public MediaResult findResult(Long userId, String... mediaHashes) {
+        if (!properties.isEnabled() || mediaHashes == null) {
+            return null;
+        }
+        Long scope = scopeOf(userId);
+        for (String hash : mediaHashes) {
+            if (!TextUtils.hasText(hash)) {
+                continue;
+            }
+            MediaResult result = lambdaQuery()
+                    .eq(MediaResult::getMediaHash, hash)
+                    .eq(MediaResult::getScopeUserId, scope)
+                    .last("LIMIT 1")
+                    .one();
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void saveResult(Task task) {
+        if (!properties.isEnabled() || task == null || task.getFormattedText() == null) {
+            return;
+        }
+        // 排版失败时会回退为原始文本，这类结果不缓存，避免重复上传永远拿到未排版的内容
+        if (task.getFormattedText().equals(task.getRawText())) {
+            return;
+        }
+        Set<String> hashes = new LinkedHashSet<>();
+        if (TextUtils.hasText(task.getContentHash())) {
+            hashes.add(task.getContentHash());
+        }
+        if (TextUtils.hasText(task.getAudioHash())) {
+            hashes.add(task.getAudioHash());
+        }
+        Long scope = scopeOf(task.getUserId());
+        for (String hash : hashes) {
+            MediaResult result = new MediaResult();
+            result.setMediaHash(hash);
+            result.setScopeUserId(scope);
+            result.setRawText(task.getRawText());
+            result.setFormattedText(task.getFormattedText());
+            result.setDurationSeconds(task.getDurationSeconds());
+            result.setSourceTaskId(task.getId());
+            result.setCreateTime(LocalDateTime.now());
+            try {
+                save(result);
+            } catch (DuplicateKeyException e) {
+                // 相同内容已有结果（并发完成的重复任务），保留先写入的一份
+                log.debug("[Dedup] 哈希 {} 已存在识别结果", hash);
+            }
+        }
+    }
+
+    private Long scopeOf(Long userId) {
+        return properties.getScope() == DedupProperties.Scope.GLOBAL ? GLOBAL_SCOPE : userId;
+    }
+}
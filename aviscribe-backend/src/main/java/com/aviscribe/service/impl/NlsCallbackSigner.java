@@ -0,0 +1,71 @@
+package com.aviscribe.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * 识别完成回调的签名：每次提交生成随机 nonce，回调地址携带 nonce 与其 HMAC-SHA256 签名，
+ * 回调接口无需登录，只接受签名有效且 nonce 与提交时一致的请求。
+ */
+@Component
+public class NlsCallbackSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${aviscribe.stt.callback.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 阿里云可访问的回调地址，例如 https://your-domain/api/v1/stt/callback
+     */
+    @Value("${aviscribe.stt.callback.url:}")
+    private String callbackUrl;
+
+    @Value("${aviscribe.stt.callback.secret:}")
+    private String secret;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public boolean isEnabled() {
+        return enabled && callbackUrl != null && !callbackUrl.isBlank() && secret != null && !secret.isBlank();
+    }
+
+    public String newNonce() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    public String callbackUrl(String nonce) {
+        String separator = callbackUrl.contains("?") ? "&" : "?";
+        return callbackUrl + separator + "nonce=" + nonce
+                + "&sig=" + URLEncoder.encode(sign(nonce), StandardCharsets.UTF_8);
+    }
+
+    public boolean verify(String nonce, String signature) {
+        if (!isEnabled() || nonce == null || signature == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(nonce).getBytes(StandardCharsets.UTF_8),
+                signature.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String sign(String nonce) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(nonce.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("回调签名失败", e);
+        }
+    }
+}
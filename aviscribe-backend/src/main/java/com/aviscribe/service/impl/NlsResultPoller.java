@@ -0,0 +1,413 @@
+package com.aviscribe.service.impl;
+
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.CommonRequest;
+import com.aliyuncs.CommonResponse;
+import com.aliyuncs.IAcsClient;
+import com.aliyuncs.exceptions.ClientException;
+import com.aliyuncs.http.MethodType;
+import com.aviscribe.entity.SttCallback;
+import com.aviscribe.mapper.SttCallbackMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 集中轮询录音文件识别（NLS FileTrans）结果：提交后的 TaskId 在此登记，
+ * 由少量调度线程按间隔调用 GetTaskResult，结果就绪后完成对应的 CompletableFuture。
+ * 所有查询按 poll-qps 错开排布，避免大量任务同时到期时触发接口限流。
+ * <p>
+ * 轮询节奏按媒体时长与历史耗时（{@link SttLatencyModel}）安排：首次查询放在预计完成时刻附近，
+ * 之后按指数退避加随机抖动重试，整体截止时间随预计耗时增长。
+ * <p>
+ * 开启完成回调时，结果通常由回调（{@link #onCallback}）直接送达，轮询只作为回调丢失时的兜底，
+ * 间隔不低于 callback.fallback-poll-interval-ms。回调可能投递到集群中任意节点：提交时在 t_stt_callback
+ * 登记 TaskId 与 nonce，收到回调的节点若不是提交节点则把结果写入该表，提交节点每隔
+ * callback.check-interval-ms 批量查表取回。
+ */
+@Component
+@Slf4j
+public class NlsResultPoller {
+
+    @Value("${aviscribe.stt.domain:filetrans.cn-shanghai.aliyuncs.com}")
+    private String fileTransDomain;
+
+    @Value("${aviscribe.stt.api-version:2018-08-17}")
+    private String apiVersion;
+
+    @Value("${aviscribe.stt.product:nls-filetrans}")
+    private String product;
+
+    @Value("${aviscribe.stt.query-action:GetTaskResult}")
+    private String queryAction;
+
+    /**
+     * 查询次数的安全上限，正常情况下由截止时间先行结束。
+     */
+    @Value("${aviscribe.stt.max-poll-times:120}")
+    private int maxPollTimes;
+
+    /**
+     * 最小查询间隔，也是退避的起点。
+     */
+    @Value("${aviscribe.stt.poll-interval-ms:3000}")
+    private long pollIntervalMs;
+
+    @Value("${aviscribe.stt.max-poll-interval-ms:60000}")
+    private long maxPollIntervalMs;
+
+    @Value("${aviscribe.stt.poll-backoff-multiplier:1.5}")
+    private double backoffMultiplier;
+
+    /**
+     * 查询间隔的随机抖动比例（±）。
+     */
+    @Value("${aviscribe.stt.poll-jitter:0.2}")
+    private double jitter;
+
+    /**
+     * 首次查询时刻 = 预计耗时 × 该比例。
+     */
+    @Value("${aviscribe.stt.first-poll-ratio:0.8}")
+    private double firstPollRatio;
+
+    /**
+     * 截止时间 = deadline-base-seconds + deadline-factor × 预计耗时。
+     */
+    @Value("${aviscribe.stt.deadline-base-seconds:300}")
+    private long deadlineBaseSeconds;
+
+    @Value("${aviscribe.stt.deadline-factor:3.0}")
+    private double deadlineFactor;
+
+    /**
+     * GetTaskResult 的全局查询速率上限（次/秒）。
+     */
+    @Value("${aviscribe.stt.poll-qps:20}")
+    private double pollQps;
+
+    @Value("${aviscribe.stt.poller-threads:2}")
+    private int pollerThreads;
+
+    @Value("${aviscribe.stt.callback.fallback-poll-interval-ms:120000}")
+    private long callbackFallbackPollIntervalMs;
+
+    /**
+     * 查询其他节点代收的回调结果的间隔。
+     */
+    @Value("${aviscribe.stt.callback.check-interval-ms:3000}")
+    private long callbackCheckIntervalMs;
+
+    /**
+     * 提交节点宕机后遗留的回调记录的保留时长。
+     */
+    @Value("${aviscribe.stt.callback.retention-hours:24}")
+    private long callbackRetentionHours;
+
+    private final IAcsClient acsClient;
+    private final SttLatencyModel latencyModel;
+    private final SttCallbackMapper sttCallbackMapper;
+    private ScheduledExecutorService scheduler;
+    private final AtomicLong lastSlotNanos = new AtomicLong();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Map<String, PendingPoll> pending = new ConcurrentHashMap<>();
+    private volatile long lastCleanupNanos = System.nanoTime();
+
+    public NlsResultPoller(IAcsClient acsClient, SttLatencyModel latencyModel, SttCallbackMapper sttCallbackMapper) {
+        this.acsClient = acsClient;
+        this.latencyModel = latencyModel;
+        this.sttCallbackMapper = sttCallbackMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(Math.max(1, pollerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "nls-poller-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMs = Math.max(500, callbackCheckIntervalMs);
+        scheduler.scheduleWithFixedDelay(this::checkStoredCallbacks, checkMs, checkMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // 未完成的任务不标记失败：租约过期后会从转录阶段重新处理
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 登记一个已提交的识别任务，返回在识别成功时完成的 future；取消该 future 即停止轮询。
+     *
+     * @param callbackNonce 提交时回调地址携带的 nonce，未使用回调时为 null
+     */
+    public CompletableFuture<String> await(String nlsTaskId, Long taskId, Integer durationSeconds, String callbackNonce) {
+        double predictedSeconds = latencyModel.predictSeconds(durationSeconds);
+        long now = System.nanoTime();
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(
+                (long) ((deadlineBaseSeconds + deadlineFactor * predictedSeconds) * 1000));
+        PendingPoll poll = new PendingPoll(nlsTaskId, taskId, durationSeconds, now, deadline, callbackNonce);
+        if (callbackNonce != null) {
+            registerCallback(poll);
+        }
+        outstanding.incrementAndGet();
+        pending.put(nlsTaskId, poll);
+        poll.future.whenComplete((result, error) -> {
+            outstanding.decrementAndGet();
+            pending.remove(nlsTaskId, poll);
+            if (callbackNonce != null) {
+                removeCallback(nlsTaskId);
+            }
+        });
+        long firstDelayMs = pollDelayMs(poll, Math.max(pollIntervalMs, (long) (predictedSeconds * firstPollRatio * 1000)));
+        log.debug("[STT] taskId={} 预计识别耗时 {} 秒，{} ms 后首次查询", taskId, (long) predictedSeconds, firstDelayMs);
+        schedule(poll, firstDelayMs);
+        return poll.future;
+    }
+
+    public int outstandingCount() {
+        return outstanding.get();
+    }
+
+    /**
+     * 处理识别完成回调（请求体与 GetTaskResult 响应相同），返回回调是否对应一个等待中的任务。
+     * 本节点提交的任务直接完成；其他节点提交的任务把结果写入 t_stt_callback，由提交节点查表取回。
+     */
+    public boolean onCallback(String nonce, String body) {
+        JSONObject root = JSONObject.parseObject(body);
+        String nlsTaskId = root != null ? root.getString("TaskId") : null;
+        if (nlsTaskId == null || nonce == null) {
+            return false;
+        }
+        PendingPoll poll = pending.get(nlsTaskId);
+        if (poll != null) {
+            if (!nonceMatches(poll.callbackNonce, nonce)) {
+                return false;
+            }
+            applyCallback(poll, root, body);
+            return true;
+        }
+        if (isPending(root.getString("StatusText"))) {
+            return false; // 只转交最终状态
+        }
+        SttCallback update = new SttCallback();
+        update.setResultBody(body);
+        update.setCompleteTime(LocalDateTime.now());
+        return sttCallbackMapper.update(update, new LambdaUpdateWrapper<SttCallback>()
+                .eq(SttCallback::getNlsTaskId, nlsTaskId)
+                .eq(SttCallback::getCallbackNonce, nonce)
+                .isNull(SttCallback::getResultBody)) > 0;
+    }
+
+    /**
+     * 取回其他节点代收的回调结果，一次查询覆盖本节点所有等待回调的任务。
+     */
+    private void checkStoredCallbacks() {
+        try {
+            List<String> waiting = pending.values().stream()
+                    .filter(poll -> poll.callbackNonce != null)
+                    .map(poll -> poll.nlsTaskId)
+                    .toList();
+            if (!waiting.isEmpty()) {
+                List<SttCallback> delivered = sttCallbackMapper.selectList(new LambdaQueryWrapper<SttCallback>()
+                        .in(SttCallback::getNlsTaskId, waiting)
+                        .isNotNull(SttCallback::getResultBody));
+                for (SttCallback callback : delivered) {
+                    PendingPoll poll = pending.get(callback.getNlsTaskId());
+                    if (poll != null && nonceMatches(poll.callbackNonce, callback.getCallbackNonce())) {
+                        log.debug("[STT] 取回其他节点收到的识别回调, taskId={}", poll.taskId);
+                        applyCallback(poll, JSONObject.parseObject(callback.getResultBody()), callback.getResultBody());
+                    }
+                }
+            }
+            if (System.nanoTime() - lastCleanupNanos > TimeUnit.MINUTES.toNanos(10)) {
+                lastCleanupNanos = System.nanoTime();
+                sttCallbackMapper.delete(new LambdaQueryWrapper<SttCallback>()
+                        .lt(SttCallback::getCreateTime, LocalDateTime.now().minusHours(callbackRetentionHours)));
+            }
+        } catch (Exception e) {
+            log.warn("[STT] 查询识别回调记录失败: {}", e.getMessage());
+        }
+    }
+
+    private void applyCallback(PendingPoll poll, JSONObject root, String body) {
+        try {
+            if (!handleStatus(poll, root, body)) {
+                log.debug("[STT] 回调状态未完成, taskId={}: {}", poll.taskId, root.getString("StatusText"));
+            }
+        } catch (ClientException e) {
+            poll.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 登记回调记录；失败时回调只能由本节点接收，其他节点收到的由兜底轮询补上。
+     */
+    private void registerCallback(PendingPoll poll) {
+        try {
+            SttCallback callback = new SttCallback();
+            callback.setNlsTaskId(poll.nlsTaskId);
+            callback.setTaskId(poll.taskId);
+            callback.setCallbackNonce(poll.callbackNonce);
+            callback.setCreateTime(LocalDateTime.now());
+            sttCallbackMapper.insert(callback);
+        } catch (Exception e) {
+            log.warn("[STT] 登记识别回调失败, taskId={}: {}", poll.taskId, e.getMessage());
+        }
+    }
+
+    private void removeCallback(String nlsTaskId) {
+        try {
+            sttCallbackMapper.delete(new LambdaQueryWrapper<SttCallback>().eq(SttCallback::getNlsTaskId, nlsTaskId));
+        } catch (Exception e) {
+            log.debug("[STT] 删除识别回调记录失败, nlsTaskId={}: {}", nlsTaskId, e.getMessage());
+        }
+    }
+
+    private static boolean nonceMatches(String expected, String actual) {
+        return expected != null && actual != null
+                && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isPending(String statusText) {
+        return "RUNNING".equalsIgnoreCase(statusText) || "QUEUEING".equalsIgnoreCase(statusText);
+    }
+
+    /**
+     * 使用回调时轮询仅作兜底，间隔放宽到 fallback-poll-interval-ms 以上。
+     */
+    private long pollDelayMs(PendingPoll poll, long delayMs) {
+        return poll.callbackNonce != null ? Math.max(delayMs, callbackFallbackPollIntervalMs) : delayMs;
+    }
+
+    private void schedule(PendingPoll poll, long delayMs) {
+        long earliest = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        long delay = reserveSlot(earliest) - System.nanoTime();
+        scheduler.schedule(() -> poll(poll), Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为下一次查询预留时间槽：相邻两次查询至少间隔 1/poll-qps 秒。
+     */
+    private long reserveSlot(long earliestNanos) {
+        long spacing = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(0.1, pollQps));
+        while (true) {
+            long last = lastSlotNanos.get();
+            long slot = Math.max(earliestNanos, last + spacing);
+            if (lastSlotNanos.compareAndSet(last, slot)) {
+                return slot;
+            }
+        }
+    }
+
+    private void poll(PendingPoll poll) {
+        if (poll.future.isDone()) {
+            return; // 已取消
+        }
+        try {
+            CommonResponse response = acsClient.getCommonResponse(buildQueryRequest(poll.nlsTaskId));
+            String data = response.getData();
+            log.debug("[STT] GetTaskResult 响应, taskId={}: {}", poll.taskId, data);
+            if (response.getHttpStatus() != 200) {
+                throw new ClientException("GetTaskResult 调用失败, httpStatus=" + response.getHttpStatus());
+            }
+
+            JSONObject root = JSONObject.parseObject(data);
+            poll.attempts++;
+            if (handleStatus(poll, root, data)) {
+                return;
+            }
+            long delayMs = pollDelayMs(poll, nextDelayMs(poll.attempts));
+            if (poll.attempts >= maxPollTimes
+                    || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs) > poll.deadlineNanos) {
+                throw new ClientException("在截止时间内未获得识别结果, taskId=" + poll.nlsTaskId
+                        + ", polls=" + poll.attempts);
+            }
+            schedule(poll, delayMs);
+        } catch (Exception e) {
+            poll.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 按查询或回调得到的状态完成 future，返回结果是否已确定；仍在排队或识别中时返回 false。
+     */
+    private boolean handleStatus(PendingPoll poll, JSONObject root, String data) throws ClientException {
+        String statusText = root.getString("StatusText");
+        if (isPending(statusText)) {
+            return false;
+        }
+        if ("SUCCESS".equalsIgnoreCase(statusText)) {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - poll.submitNanos);
+            String resultText = root.getString("Result");
+            // 回调与兜底轮询可能同时到达，只记录一次
+            if (poll.future.complete(resultText != null ? resultText : "")) { // 可能是静音等情况
+                latencyModel.record(poll.taskId, poll.durationSeconds, elapsedMs, poll.attempts);
+                log.info("[STT] 识别结果就绪, taskId={}, 耗时 {} ms, 查询 {} 次", poll.taskId, elapsedMs, poll.attempts);
+            }
+            return true;
+        }
+        throw new ClientException("GetTaskResult 返回错误状态, StatusText=" + statusText + ", data=" + data);
+    }
+
+    /**
+     * 第 n 次查询未就绪后的等待时长：从最小间隔起按倍数增长，封顶后叠加 ±jitter 的随机抖动。
+     */
+    private long nextDelayMs(int attempts) {
+        double base = pollIntervalMs * Math.pow(backoffMultiplier, Math.max(0, attempts - 1));
+        double capped = Math.min(maxPollIntervalMs, base);
+        double factor = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Math.max(pollIntervalMs, (long) (capped * factor));
+    }
+
+    private CommonRequest buildQueryRequest(String nlsTaskId) {
+        CommonRequest getRequest = new CommonRequest();
+        getRequest.setSysDomain(fileTransDomain);
+        getRequest.setSysVersion(apiVersion);
+        getRequest.setSysAction(queryAction);
+        getRequest.setSysProduct(product);
+        getRequest.putQueryParameter("TaskId", nlsTaskId);
+        getRequest.setSysMethod(MethodType.GET);
+        return getRequest;
+    }
+
+    private static final class PendingPoll {
+        private final String nlsTaskId;
+        private final Long taskId;
+        private final Integer durationSeconds;
+        private final long submitNanos;
+        private final long deadlineNanos;
+        private final String callbackNonce;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private volatile int attempts;
+
+        private PendingPoll(String nlsTaskId, Long taskId, Integer durationSeconds, long submitNanos, long deadlineNanos,
+                            String callbackNonce) {
+            this.nlsTaskId = nlsTaskId;
+            this.taskId = taskId;
+            this.durationSeconds = durationSeconds;
+            this.submitNanos = submitNanos;
+            this.deadlineNanos = deadlineNanos;
+            this.callbackNonce = callbackNonce;
+        }
+    }
+}
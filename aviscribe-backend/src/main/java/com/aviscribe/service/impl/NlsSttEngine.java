@@ -0,0 +1,370 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.common.utils.FfmpegUtils;
+import com.aviscribe.entity.Task;
+import com.aviscribe.pipeline.TaskCancellation;
+import com.aviscribe.service.MediaProbeService;
+import com.aviscribe.service.SttEngine;
+import com.aviscribe.service.TaskSegmentService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.CommonRequest;
+import com.aliyuncs.CommonResponse;
+import com.aliyuncs.IAcsClient;
+import com.aliyuncs.exceptions.ClientException;
+import com.aliyuncs.http.MethodType;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 阿里云录音文件识别（NLS FileTrans）：上传 OSS 后提交，结果由 {@link NlsResultPoller} 集中轮询获得，适合长音频。
+ */
+@Component
+@Slf4j
+public class NlsSttEngine implements SttEngine {
+
+    public static final String NAME = "nls";
+
+    // NLS FileTrans 常量 / 配置（来自官方示例），客户端与凭证见 AliyunNlsConfig
+    @Value("${aviscribe.stt.product:nls-filetrans}")
+    private String product;
+
+    @Value("${aviscribe.stt.domain:filetrans.cn-shanghai.aliyuncs.com}")
+    private String fileTransDomain;
+
+    @Value("${aviscribe.stt.api-version:2018-08-17}")
+    private String apiVersion;
+
+    @Value("${aviscribe.stt.submit-action:SubmitTask}")
+    private String submitAction;
+
+    @Value("${aviscribe.stt.app-key:}")
+    private String appKey;
+
+    /**
+     * 提供给阿里云访问音频文件的公网基址，例如 http://your-domain/audio/
+     * 实际的文件名由本地音频文件名拼接。
+     */
+    @Value("${aviscribe.stt.public-audio-base-url:http://127.0.0.1:8090/audio/}")
+    private String publicAudioBaseUrl;
+
+    /**
+     * 长音频分段识别：超过 min-duration-seconds 的音频按静音切成不超过 max-segment-seconds 的片段并行提交。
+     */
+    @Value("${aviscribe.stt.segment.enabled:false}")
+    private boolean segmentEnabled;
+
+    @Value("${aviscribe.stt.segment.min-duration-seconds:1200}")
+    private int segmentMinDurationSeconds;
+
+    @Value("${aviscribe.stt.segment.max-segment-seconds:600}")
+    private int maxSegmentSeconds;
+
+    /**
+     * 首段最大长度（秒），首段越短越早产出部分转写结果；0 表示与其余段相同。
+     */
+    @Value("${aviscribe.stt.segment.first-segment-seconds:0}")
+    private int firstSegmentSeconds;
+
+    @Value("${aviscribe.stt.segment.min-segment-seconds:120}")
+    private int minSegmentSeconds;
+
+    @Value("${aviscribe.stt.segment.silence-noise-db:-30}")
+    private int silenceNoiseDb;
+
+    @Value("${aviscribe.stt.segment.silence-min-seconds:0.5}")
+    private double silenceMinSeconds;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OssUploadService ossUploadService;
+    private final TaskCancellation taskCancellation;
+    private final NlsResultPoller nlsResultPoller;
+    private final NlsCallbackSigner callbackSigner;
+    private final IAcsClient acsClient;
+    private final FfmpegUtils ffmpegUtils;
+    private final MediaProbeService mediaProbeService;
+    private final TaskSegmentService taskSegmentService;
+
+    @Autowired
+    public NlsSttEngine(OssUploadService ossUploadService,
+                        TaskCancellation taskCancellation,
+                        NlsResultPoller nlsResultPoller,
+                        NlsCallbackSigner callbackSigner,
+                        IAcsClient acsClient,
+                        FfmpegUtils ffmpegUtils,
+                        MediaProbeService mediaProbeService,
+                        TaskSegmentService taskSegmentService) {
+        this.ossUploadService = ossUploadService;
+        this.taskCancellation = taskCancellation;
+        this.nlsResultPoller = nlsResultPoller;
+        this.callbackSigner = callbackSigner;
+        this.acsClient = acsClient;
+        this.ffmpegUtils = ffmpegUtils;
+        this.mediaProbeService = mediaProbeService;
+        this.taskSegmentService = taskSegmentService;
+    }
+
+    @PostConstruct
+    public void validateSegmentSettings() {
+        if (!segmentEnabled) {
+            return;
+        }
+        if (maxSegmentSeconds <= 0) {
+            throw new IllegalArgumentException("aviscribe.stt.segment.max-segment-seconds 需大于 0: " + maxSegmentSeconds);
+        }
+        if (minSegmentSeconds < 0 || minSegmentSeconds >= maxSegmentSeconds) {
+            throw new IllegalArgumentException("aviscribe.stt.segment.min-segment-seconds 需在 0 与 max-segment-seconds 之间: "
+                    + minSegmentSeconds);
+        }
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return appKey != null && !appKey.isBlank();
+    }
+
+    @Override
+    public int pendingCount() {
+        return nlsResultPoller.outstandingCount();
+    }
+
+    @Override
+    public CompletableFuture<String> transcribe(Task task, String audioPath) throws Exception {
+        // 调试：打印当前使用的 appKey 前缀，确认配置是否从环境变量正确注入
+        log.info("[STT] 当前使用的 appKey 前缀: {}...",
+                appKey != null && appKey.length() > 6 ? appKey.substring(0, 6) : appKey);
+
+        File audioFile = new File(audioPath);
+        List<double[]> segments = planSegments(task, audioPath);
+        return segments == null
+                ? fileTransRecognize(task, audioFile, task != null ? task.getDurationSeconds() : null)
+                : recognizeSegments(task, audioFile, segments);
+    }
+
+    /**
+     * 使用 NLS FileTrans SubmitTask 提交识别，结果由 {@link NlsResultPoller} 轮询 GetTaskResult 获得。
+     */
+    private CompletableFuture<String> fileTransRecognize(Task task, File audioFile, Integer durationSeconds) throws Exception {
+        // 1. 先将本地音频上传到 OSS，获取公网可访问的 file_link；提取阶段已流式上传的整段音频直接使用
+        String fileLink;
+        try {
+            boolean uploaded = task != null && task.getAudioObjectKey() != null
+                    && audioFile.getPath().equals(task.getAudioLocalPath());
+            fileLink = uploaded
+                    ? ossUploadService.getAccessUrl(task.getAudioObjectKey())
+                    : ossUploadService.uploadAudio(audioFile);
+        } catch (Exception e) {
+            log.error("[STT] 上传音频到 OSS 失败，将回退使用本地 publicAudioBaseUrl: {}", e.getMessage(), e);
+            String fileName = audioFile.getName();
+            fileLink = publicAudioBaseUrl;
+            if (!fileLink.endsWith("/")) {
+                fileLink += "/";
+            }
+            fileLink += URLEncoder.encode(fileName, StandardCharsets.UTF_8);
+        }
+
+        log.info("[STT] 使用 NLS FileTrans, fileLink={}", fileLink);
+
+        // 2. 提交任务（SubmitTask），复用共享客户端的连接池；请求中已指定 domain，无需注册全局 endpoint
+        String callbackNonce = callbackSigner.isEnabled() ? callbackSigner.newNonce() : null;
+        String taskId = submitFileTransTask(acsClient, appKey, fileLink, callbackNonce);
+        if (taskId == null || taskId.isEmpty()) {
+            throw new RuntimeException("提交录音文件识别请求失败，TaskId 为空");
+        }
+        log.info("[STT] 录音文件识别请求成功，task_id={}", taskId);
+
+        // 3. 交由集中轮询器获取结果（GetTaskResult），不占用当前线程
+        return nlsResultPoller.await(taskId, task != null ? task.getId() : null, durationSeconds, callbackNonce);
+    }
+
+    /**
+     * 需要分段时返回各段 [开始秒, 结束秒]，否则返回 null。
+     */
+    private List<double[]> planSegments(Task task, String audioPath) {
+        if (!segmentEnabled) {
+            return null;
+        }
+        Integer duration = task != null ? task.getDurationSeconds() : null;
+        if (duration == null || duration <= 0) {
+            MediaProbeService.MediaInfo info = mediaProbeService.probe(audioPath);
+            duration = info != null ? info.roundedDurationSeconds() : null;
+        }
+        if (duration == null || duration <= segmentMinDurationSeconds) {
+            return null;
+        }
+        List<double[]> silences = ffmpegUtils.detectSilences(audioPath, silenceNoiseDb, silenceMinSeconds);
+        if (silences == null) {
+            log.warn("[STT] 静音检测失败，按固定长度切分: {}", audioPath);
+            silences = List.of();
+        }
+        List<double[]> segments = AudioSegmentPlanner.plan(duration, silences,
+                firstSegmentSeconds, maxSegmentSeconds, minSegmentSeconds);
+        return segments.size() > 1 ? segments : null;
+    }
+
+    /**
+     * 切分音频并同时提交各段，全部完成后按各段起始时间偏移拼接结果。
+     */
+    private CompletableFuture<String> recognizeSegments(Task task, File audioFile, List<double[]> segments) throws Exception {
+        Long taskId = task != null ? task.getId() : null;
+        log.info("[STT] 长音频分段识别, taskId={}, 共 {} 段", taskId, segments.size());
+        String fileName = audioFile.getName();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        List<File> segmentFiles = new ArrayList<>();
+        // 取消回调可能在其他线程遍历，提交循环仍在追加，需用并发安全的列表
+        List<CompletableFuture<String>> futures = new CopyOnWriteArrayList<>();
+        // 任务取消时停止所有分段的轮询
+        taskCancellation.onCancel(() -> futures.forEach(f -> f.cancel(false)));
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                double[] segment = segments.get(i);
+                File segmentFile = new File(audioFile.getParentFile(), baseName + ".seg" + i + extension);
+                boolean last = i == segments.size() - 1;
+                // 最后一段截到文件末尾，避免时长取整丢掉结尾
+                double length = last ? 0 : segment[1] - segment[0];
+                if (!ffmpegUtils.cutSegment(audioFile.getPath(), segmentFile.getPath(), segment[0], length)) {
+                    throw new RuntimeException("音频分段失败: 第 " + (i + 1) + " 段");
+                }
+                segmentFiles.add(segmentFile);
+                CompletableFuture<String> future = fileTransRecognize(task, segmentFile, (int) Math.ceil(segment[1] - segment[0]));
+                // 每段完成即保存，供转录中的任务逐段展示
+                int seq = i;
+                future.thenAccept(result -> savePartial(taskId, seq,
+                        Math.round(segment[0] * 1000), Math.round(segment[1] * 1000), result));
+                futures.add(future);
+            }
+        } catch (Exception e) {
+            futures.forEach(f -> f.cancel(false));
+            segmentFiles.forEach(File::delete);
+            throw e;
+        }
+        // 任一段失败即取消其余段，不再等待
+        futures.forEach(f -> f.whenComplete((result, error) -> {
+            if (error != null) {
+                futures.forEach(other -> other.cancel(false));
+            }
+        }));
+        CompletableFuture<String> stitched = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> stitchResults(futures.stream().map(CompletableFuture::join).toList(), segments));
+        stitched.whenComplete((result, error) -> {
+            segmentFiles.forEach(File::delete);
+            // 调用方放弃等待（如对冲时其他引擎已先返回）时一并停止各段轮询
+            if (stitched.isCancelled()) {
+                futures.forEach(f -> f.cancel(false));
+            }
+        });
+        return stitched;
+    }
+
+    private void savePartial(Long taskId, int seq, long startMs, long endMs, String result) {
+        if (taskId == null) {
+            return;
+        }
+        try {
+            taskSegmentService.saveSegment(taskId, seq, startMs, endMs, result);
+        } catch (Exception e) {
+            // 部分结果仅用于提前展示，保存失败不影响识别本身
+            log.warn("[STT] 保存分段结果失败, taskId={}, seq={}: {}", taskId, seq, e.getMessage());
+        }
+    }
+
+    /**
+     * 合并各段识别结果：Sentences / Words 的 BeginTime、EndTime（毫秒）加上所在段的起始偏移。
+     */
+    static String stitchResults(List<String> results, List<double[]> segments) {
+        JSONArray sentences = new JSONArray();
+        JSONArray words = new JSONArray();
+        for (int i = 0; i < results.size(); i++) {
+            String result = results.get(i);
+            if (result == null || result.isBlank()) {
+                continue; // 静音段
+            }
+            long offsetMs = Math.round(segments.get(i)[0] * 1000);
+            JSONObject root = JSONObject.parseObject(result);
+            appendShifted(root.getJSONArray("Sentences"), offsetMs, sentences);
+            appendShifted(root.getJSONArray("Words"), offsetMs, words);
+        }
+        JSONObject merged = new JSONObject(true);
+        merged.put("Sentences", sentences);
+        if (!words.isEmpty()) {
+            merged.put("Words", words);
+        }
+        return merged.toJSONString();
+    }
+
+    private static void appendShifted(JSONArray source, long offsetMs, JSONArray target) {
+        if (source == null) {
+            return;
+        }
+        for (int i = 0; i < source.size(); i++) {
+            JSONObject item = source.getJSONObject(i);
+            item.put("BeginTime", item.getLongValue("BeginTime") + offsetMs);
+            item.put("EndTime", item.getLongValue("EndTime") + offsetMs);
+            target.add(item);
+        }
+    }
+
+    private String submitFileTransTask(IAcsClient client, String appKey, String fileLink, String callbackNonce) throws ClientException {
+        CommonRequest postRequest = new CommonRequest();
+        postRequest.setSysDomain(fileTransDomain);
+        postRequest.setSysVersion(apiVersion);
+        postRequest.setSysAction(submitAction);
+        postRequest.setSysProduct(product);
+
+        JSONObject taskObject = new JSONObject();
+        taskObject.put("appkey", appKey);
+        taskObject.put("file_link", fileLink);
+        taskObject.put("version", "4.0");
+        taskObject.put("enable_words", true);
+        if (callbackNonce != null) {
+            // 识别完成后由阿里云回调，结果不必等到下一次轮询
+            taskObject.put("enable_callback", true);
+            taskObject.put("callback_url", callbackSigner.callbackUrl(callbackNonce));
+        }
+        String taskJson = taskObject.toJSONString();
+        log.info("[STT] SubmitTask 请求体: {}", taskJson);
+
+        postRequest.putBodyParameter("Task", taskJson);
+        postRequest.setSysMethod(MethodType.POST);
+
+        CommonResponse postResponse = client.getCommonResponse(postRequest);
+        String data = postResponse.getData();
+        log.info("[STT] SubmitTask 响应: {}", data);
+
+        if (postResponse.getHttpStatus() != 200) {
+            throw new ClientException("SubmitTask 调用失败, httpStatus=" + postResponse.getHttpStatus());
+        }
+
+        JSONObject result = JSONObject.parseObject(data);
+        String statusText = result.getString("StatusText");
+        if (!"SUCCESS".equalsIgnoreCase(statusText)) {
+            throw new ClientException("SubmitTask 返回非 SUCCESS, StatusText=" + statusText);
+        }
+        return result.getString("TaskId");
+    }
+}
@@ -2,15 +2,33 @@ package com.aviscribe.service.impl;
 
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.UploadPartRequest;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 将本地生成的音频文件上传到阿里云 OSS，并返回可供语音识别访问的 URL。
@@ -40,6 +58,34 @@ public class OssUploadService {
     @Value("${aviscribe.oss.signed-url-expire-seconds:86400}")
     private long signedUrlExpireSeconds;
 
+    /**
+     * 流式上传的分片大小（MB，OSS 要求除最后一片外不小于 100KB）。
+     */
+    @Value("${aviscribe.oss.multipart.part-size-mb:5}")
+    private int partSizeMb;
+
+    /**
+     * 单次流式上传同时进行的分片数；内存占用约为 (parallelism + 1) × 分片大小。
+     */
+    @Value("${aviscribe.oss.multipart.parallelism:4}")
+    private int partParallelism;
+
+    private final ExecutorService partUploadExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "oss-part-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        partUploadExecutor.shutdownNow();
+    }
+
     /**
      * 将本地文件上传到 OSS，并返回可供阿里云语音识别访问的 URL。
      */
@@ -58,22 +104,110 @@ public class OssUploadService {
             ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
             ossClient.putObject(bucketName, objectName, file);
             log.info("[OSS] 上传音频成功, bucket={}, object={} (size={}KB)", bucketName, objectName, file.length() / 1024);
+            return accessUrl(ossClient, objectName);
+        } catch (Exception e) {
+            throw new RuntimeException("上传音频到 OSS 失败: " + e.getMessage(), e);
+        } finally {
+            if (ossClient != null) {
+                ossClient.shutdown();
+            }
+        }
+    }
 
-            if (useSignedUrl) {
-                // 生成带过期时间的签名 URL
-                Date expiration = new Date(System.currentTimeMillis() + Duration.ofSeconds(signedUrlExpireSeconds).toMillis());
-                String signedUrl = ossClient.generatePresignedUrl(bucketName, objectName, expiration).toString();
-                log.info("[OSS] 生成签名 URL, 过期时间: {} 秒", signedUrlExpireSeconds);
-                return signedUrl;
-            } else {
-                // 直接返回公共读 URL（需要 bucket 或 object 权限为公共读）
-                String encodedObject = URLEncoder.encode(objectName, StandardCharsets.UTF_8).replace("+", "%20");
-                String url = String.format("https://%s.%s/%s", bucketName, extractHostFromEndpoint(endpoint), encodedObject);
-                log.info("[OSS] 使用公共读 URL: {}", url);
-                return url;
+    /**
+     * 以分片上传的方式边读边传，读到流末尾后完成上传，返回对象名；各分片并行上传，不需要完整的本地文件。
+     */
+    public String uploadStream(InputStream in, String fileName) {
+        if (endpoint == null || endpoint.isEmpty() || bucketName == null || bucketName.isEmpty()) {
+            throw new IllegalStateException("OSS 配置缺失: endpoint 或 bucket 为空");
+        }
+        String objectName = buildObjectName(fileName);
+        int partSize = Math.max(1, partSizeMb) * 1024 * 1024;
+        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+        String uploadId = null;
+        List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+        try {
+            uploadId = ossClient.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, objectName)).getUploadId();
+            Semaphore slots = new Semaphore(Math.max(1, partParallelism));
+            long total = 0;
+            int partNumber = 1;
+            while (true) {
+                byte[] data = in.readNBytes(partSize);
+                if (data.length == 0 && partNumber > 1) {
+                    break;
+                }
+                if (data.length == 0) {
+                    throw new IOException("音频输出为空");
+                }
+                slots.acquire();
+                total += data.length;
+                parts.add(uploadPartAsync(ossClient, objectName, uploadId, partNumber++, data, slots));
+                if (data.length < partSize) {
+                    break;
+                }
+            }
+            List<PartETag> etags = new ArrayList<>(parts.size());
+            for (CompletableFuture<PartETag> part : parts) {
+                etags.add(part.join());
             }
+            ossClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, etags));
+            log.info("[OSS] 流式上传音频成功, bucket={}, object={} (size={}KB, parts={})",
+                    bucketName, objectName, total / 1024, etags.size());
+            return objectName;
         } catch (Exception e) {
-            throw new RuntimeException("上传音频到 OSS 失败: " + e.getMessage(), e);
+            parts.forEach(part -> part.cancel(true));
+            if (uploadId != null) {
+                try {
+                    ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+                } catch (Exception abortError) {
+                    log.warn("[OSS] 取消分片上传失败, object={}: {}", objectName, abortError.getMessage());
+                }
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("流式上传音频到 OSS 失败: " + cause.getMessage(), cause);
+        } finally {
+            ossClient.shutdown();
+        }
+    }
+
+    private CompletableFuture<PartETag> uploadPartAsync(OSS ossClient, String objectName, String uploadId,
+                                                        int partNumber, byte[] data, Semaphore slots) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                UploadPartRequest request = new UploadPartRequest(bucketName, objectName, uploadId, partNumber,
+                        new ByteArrayInputStream(data), data.length);
+                return ossClient.uploadPart(request).getPartETag();
+            } finally {
+                slots.release();
+            }
+        }, partUploadExecutor);
+    }
+
+    /**
+     * 已上传对象的访问 URL（签名 URL 或公共读 URL）。
+     */
+    public String getAccessUrl(String objectName) {
+        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+        try {
+            return accessUrl(ossClient, objectName);
+        } finally {
+            ossClient.shutdown();
+        }
+    }
+
+    public void deleteQuietly(String objectName) {
+        if (objectName == null) {
+            return;
+        }
+        OSS ossClient = null;
+        try {
+            ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+            ossClient.deleteObject(bucketName, objectName);
+        } catch (Exception e) {
+            log.warn("[OSS] 删除对象失败, object={}: {}", objectName, e.getMessage());
         } finally {
             if (ossClient != null) {
                 ossClient.shutdown();
@@ -81,6 +215,21 @@ public class OssUploadService {
         }
     }
 
+    private String accessUrl(OSS ossClient, String objectName) {
+        if (useSignedUrl) {
+            // 生成带过期时间的签名 URL
+            Date expiration = new Date(System.currentTimeMillis() + Duration.ofSeconds(signedUrlExpireSeconds).toMillis());
+            String signedUrl = ossClient.generatePresignedUrl(bucketName, objectName, expiration).toString();
+            log.info("[OSS] 生成签名 URL, 过期时间: {} 秒", signedUrlExpireSeconds);
+            return signedUrl;
+        }
+        // 直接返回公共读 URL（需要 bucket 或 object 权限为公共读）
+        String encodedObject = URLEncoder.encode(objectName, StandardCharsets.UTF_8).replace("+", "%20");
+        String url = String.format("https://%s.%s/%s", bucketName, extractHostFromEndpoint(endpoint), encodedObject);
+        log.info("[OSS] 使用公共读 URL: {}", url);
+        return url;
+    }
+
     private String buildObjectName(String fileName) {
         String prefix = objectPrefix == null ? "" : objectPrefix;
         if (!prefix.isEmpty() && !prefix.endsWith("/")) {
@@ -0,0 +1,333 @@
+package com.aviscribe.service.impl;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 识别前压缩长静音：按 20ms 帧计算能量与过零率判断是否有语音，超过 minSilenceMs 的非语音区间
+ * 只保留 keepSilenceMs（前后各一半），其余区间原样拼接为新的 WAV，并记录偏移映射以还原原始时间轴。
+ *
+ * <p>只处理 16kHz 单声道 16bit PCM 的 WAV（提取的中间格式为 wav 时）；数据区按块内存映射，
+ * 逐帧计算不分配对象，输出通过 transferTo 直接从源文件复制保留的区间。</p>
+ */
+final class SilenceTrimmer {
+
+    static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = SAMPLE_RATE / 50; // 20ms
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int FRAME_BYTES = FRAME_SAMPLES * BYTES_PER_SAMPLE;
+    /**
+     * 每次映射的帧数（约 64MB），避免超长音频超出单个映射 2GB 的上限。
+     */
+    private static final int FRAMES_PER_MAP = 100_000;
+    private static final int WAV_HEADER_BYTES = 44;
+    /**
+     * 能量低于阈值但过零率高于该值、且能量不低于阈值 -10dB 的帧视为清辅音（s、f、h 等）。
+     */
+    private static final double FRICATIVE_ZCR = 0.3;
+
+    private SilenceTrimmer() {
+    }
+
+    /**
+     * @param thresholdDb   语音帧的能量阈值（dBFS，例如 -40）
+     * @param minSilenceMs  短于该时长的停顿原样保留
+     * @param keepSilenceMs 长静音压缩后保留的时长，前后各一半
+     */
+    record Settings(double thresholdDb, long minSilenceMs, long keepSilenceMs) {
+    }
+
+    /**
+     * 压缩后的音频与时间映射。
+     */
+    record Result(long originalMs, long trimmedMs, OffsetMap offsets) {
+    }
+
+    /**
+     * 检测并写出压缩后的音频；不是 16kHz 单声道 PCM WAV 时返回 null，不写文件。
+     */
+    static Result trim(Path source, Path target, Settings settings) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long[] data = findPcmData(in);
+            if (data == null) {
+                return null;
+            }
+            long dataOffset = data[0];
+            long frameCount = data[1] / FRAME_BYTES;
+            if (frameCount == 0 || frameCount > Integer.MAX_VALUE) {
+                return null;
+            }
+            boolean[] speech = detectSpeech(in, dataOffset, (int) frameCount, settings.thresholdDb());
+            List<long[]> kept = keptRanges(speech, settings.minSilenceMs() / 20, settings.keepSilenceMs() / 20);
+            long totalSamples = data[1] / BYTES_PER_SAMPLE;
+            // 最后不足一帧的尾部随最后一个区间保留
+            if (!kept.isEmpty() && kept.get(kept.size() - 1)[1] == frameCount * FRAME_SAMPLES) {
+                kept.get(kept.size() - 1)[1] = totalSamples;
+            }
+
+            long keptSamples = 0;
+            for (long[] range : kept) {
+                keptSamples += range[1] - range[0];
+            }
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeHeader(out, keptSamples * BYTES_PER_SAMPLE);
+                for (long[] range : kept) {
+                    long position = dataOffset + range[0] * BYTES_PER_SAMPLE;
+                    long remaining = (range[1] - range[0]) * BYTES_PER_SAMPLE;
+                    while (remaining > 0) {
+                        long copied = in.transferTo(position, remaining, out);
+                        if (copied <= 0) {
+                            throw new IOException("复制音频数据失败: " + source);
+                        }
+                        position += copied;
+                        remaining -= copied;
+                    }
+                }
+            }
+            return new Result(toMs(totalSamples), toMs(keptSamples), OffsetMap.of(kept));
+        }
+    }
+
+    /**
+     * 解析 RIFF 头，是 16kHz 单声道 16bit PCM 时返回 [数据区偏移, 数据区字节数]，否则返回 null。
+     */
+    private static long[] findPcmData(FileChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.read(header, 0) < 12 || header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) {
+            return null; // "RIFF" ... "WAVE"
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 12;
+        boolean pcm16kMono = false;
+        while (position + 8 <= in.size()) {
+            chunk.clear().limit(8);
+            in.read(chunk, position);
+            int id = chunk.getInt(0);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            if (id == 0x20746D66) { // "fmt "
+                chunk.clear().limit(16);
+                in.read(chunk, position + 8);
+                int format = chunk.getShort(0) & 0xFFFF;
+                int channels = chunk.getShort(2);
+                int sampleRate = chunk.getInt(4);
+                int bits = chunk.getShort(14);
+                pcm16kMono = format == 1 && channels == 1 && sampleRate == SAMPLE_RATE && bits == 16;
+            } else if (id == 0x61746164) { // "data"
+                long offset = position + 8;
+                // 管道写出的 wav 数据长度可能未回填，以文件实际大小为准
+                long length = Math.min(size, in.size() - offset);
+                return pcm16kMono ? new long[]{offset, length} : null;
+            }
+            position += 8 + size + (size & 1);
+        }
+        return null;
+    }
+
+    /**
+     * 逐帧判断是否为语音：均方能量超过阈值，或能量略低但过零率高（清辅音）。
+     */
+    private static boolean[] detectSpeech(FileChannel in, long dataOffset, int frameCount, double thresholdDb) throws IOException {
+        double threshold = Math.pow(10, thresholdDb / 20) * 32768;
+        double loudEnergy = threshold * threshold;
+        double fricativeEnergy = loudEnergy / 10;
+        boolean[] speech = new boolean[frameCount];
+        for (int first = 0; first < frameCount; first += FRAMES_PER_MAP) {
+            int frames = Math.min(FRAMES_PER_MAP, frameCount - first);
+            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY,
+                    dataOffset + (long) first * FRAME_BYTES, (long) frames * FRAME_BYTES);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            for (int frame = 0; frame < frames; frame++) {
+                int base = frame * FRAME_BYTES;
+                long sumSquares = 0;
+                int crossings = 0;
+                int previous = mapped.getShort(base);
+                for (int i = 0; i < FRAME_SAMPLES; i++) {
+                    int sample = mapped.getShort(base + i * BYTES_PER_SAMPLE);
+                    sumSquares += (long) sample * sample;
+                    if ((sample ^ previous) < 0) {
+                        crossings++;
+                    }
+                    previous = sample;
+                }
+                double energy = (double) sumSquares / FRAME_SAMPLES;
+                double zcr = (double) crossings / FRAME_SAMPLES;
+                speech[first + frame] = energy >= loudEnergy || (energy >= fricativeEnergy && zcr >= FRICATIVE_ZCR);
+            }
+        }
+        return speech;
+    }
+
+    /**
+     * 由逐帧结果得到保留的 [开始样本, 结束样本) 区间：短停顿并入前后语音，
+     * 长静音只在语音两侧各留 keepFrames / 2 帧，相邻区间若重叠则合并。
+     */
+    static List<long[]> keptRanges(boolean[] speech, long minSilenceFrames, long keepFrames) {
+        List<long[]> ranges = new ArrayList<>();
+        long pad = keepFrames / 2;
+        int frame = 0;
+        int count = speech.length;
+        while (frame < count) {
+            if (speech[frame]) {
+                frame++;
+                continue;
+            }
+            int start = frame;
+            while (frame < count && !speech[frame]) {
+                frame++;
+            }
+            boolean leading = start == 0;
+            boolean trailing = frame == count;
+            if (frame - start < minSilenceFrames && !leading && !trailing) {
+                continue; // 语句间的正常停顿
+            }
+            // [start, frame) 是需要压缩的静音，先结束上一段保留区间
+            long keepUntil = leading ? 0 : Math.min(frame, start + pad);
+            long resumeAt = trailing ? count : Math.max(keepUntil, frame - pad);
+            if (!leading && resumeAt == keepUntil) {
+                continue; // 保留部分首尾相接，无需切开
+            }
+            closeRange(ranges, keepUntil);
+            if (resumeAt < count) {
+                ranges.add(new long[]{resumeAt, -1});
+            }
+        }
+        if (ranges.isEmpty()) {
+            if (count > 0 && speech[0]) {
+                ranges.add(new long[]{0, count});
+            }
+        } else if (ranges.get(ranges.size() - 1)[1] < 0) {
+            ranges.get(ranges.size() - 1)[1] = count;
+        }
+        for (long[] range : ranges) {
+            range[0] *= FRAME_SAMPLES;
+            range[1] *= FRAME_SAMPLES;
+        }
+        return ranges;
+    }
+
+    /**
+     * 结束当前打开的区间；音频以语音开头时补上从 0 开始的区间。
+     */
+    private static void closeRange(List<long[]> ranges, long endFrame) {
+        if (ranges.isEmpty()) {
+            if (endFrame > 0) {
+                ranges.add(new long[]{0, endFrame});
+            }
+            return;
+        }
+        long[] last = ranges.get(ranges.size() - 1);
+        if (last[1] < 0) {
+            if (endFrame > last[0]) {
+                last[1] = endFrame;
+            } else {
+                ranges.remove(ranges.size() - 1);
+            }
+        }
+    }
+
+    private static void writeHeader(FileChannel out, long dataBytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952).putInt((int) (36 + dataBytes)).putInt(0x45564157); // RIFF size WAVE
+        header.putInt(0x20746D66).putInt(16) // "fmt " 块
+                .putShort((short) 1).putShort((short) 1) // PCM，单声道
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * BYTES_PER_SAMPLE)
+                .putShort((short) BYTES_PER_SAMPLE).putShort((short) 16);
+        header.putInt(0x61746164).putInt((int) dataBytes); // "data"
+        header.flip();
+        while (header.hasRemaining()) {
+            out.write(header);
+        }
+    }
+
+    private static long toMs(long samples) {
+        return samples * 1000 / SAMPLE_RATE;
+    }
+
+    /**
+     * 压缩后时间到原始时间的映射：每个保留区间在压缩音频中的起点及其原始起点。
+     */
+    static final class OffsetMap {
+        private final long[] trimmedStartMs;
+        private final long[] originalStartMs;
+
+        private OffsetMap(long[] trimmedStartMs, long[] originalStartMs) {
+            this.trimmedStartMs = trimmedStartMs;
+            this.originalStartMs = originalStartMs;
+        }
+
+        static OffsetMap of(List<long[]> keptSamples) {
+            long[] trimmed = new long[keptSamples.size()];
+            long[] original = new long[keptSamples.size()];
+            long position = 0;
+            for (int i = 0; i < keptSamples.size(); i++) {
+                long[] range = keptSamples.get(i);
+                trimmed[i] = toMs(position);
+                original[i] = toMs(range[0]);
+                position += range[1] - range[0];
+            }
+            return new OffsetMap(trimmed, original);
+        }
+
+        /**
+         * @param end 为结束时间时，恰好落在区间交界处的时间归入前一个区间
+         */
+        long toOriginalMs(long trimmedMs, boolean end) {
+            if (trimmedStartMs.length == 0) {
+                return trimmedMs;
+            }
+            int low = 0;
+            int high = trimmedStartMs.length - 1;
+            int index = 0;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long start = trimmedStartMs[middle];
+                if (start < trimmedMs || (!end && start == trimmedMs)) {
+                    index = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return originalStartMs[index] + (trimmedMs - trimmedStartMs[index]);
+        }
+
+        /**
+         * 把识别结果中 Sentences / Words 的 BeginTime、EndTime 还原到原始时间轴。
+         */
+        String remapResult(String result) {
+            if (result == null || result.isBlank()) {
+                return result;
+            }
+            JSONObject root = JSONObject.parseObject(result);
+            remapItems(root.getJSONArray("Sentences"));
+            remapItems(root.getJSONArray("Words"));
+            return root.toJSONString();
+        }
+
+        private void remapItems(JSONArray items) {
+            if (items == null) {
+                return;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                JSONObject item = items.getJSONObject(i);
+                if (item.containsKey("BeginTime")) {
+                    item.put("BeginTime", toOriginalMs(item.getLongValue("BeginTime"), false));
+                }
+                if (item.containsKey("EndTime")) {
+                    item.put("EndTime", toOriginalMs(item.getLongValue("EndTime"), true));
+                }
+            }
+        }
+    }
+}
@@ -1,225 +1,372 @@
 package com.aviscribe.service.impl;
 
 import com.aviscribe.entity.Task;
+import com.aviscribe.entity.TaskSegment;
+import com.aviscribe.pipeline.PipelineStage;
+import com.aviscribe.pipeline.StageExecutors;
+import com.aviscribe.pipeline.TaskCancellation;
 import com.aviscribe.service.SpeechToTextService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
-import com.aliyuncs.CommonRequest;
-import com.aliyuncs.CommonResponse;
-import com.aliyuncs.DefaultAcsClient;
-import com.aliyuncs.IAcsClient;
-import com.aliyuncs.exceptions.ClientException;
-import com.aliyuncs.http.MethodType;
-import com.aliyuncs.profile.DefaultProfile;
+import com.aviscribe.service.SttEngine;
+import com.aviscribe.service.TaskSegmentService;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.File;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.nio.file.Files;
-import java.util.*;
-
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 语音识别入口：由 {@link SttEngineRouter} 选择引擎，统一处理取消、错误与部分结果。
+ * <p>
+ * 开启对冲后，NLS 超过历史耗时分位数仍未返回（或提前失败）时再向备用引擎提交一次，
+ * 先成功的结果被采用，另一路随即取消；大多数任务在分位数内完成，不会产生额外开销。
+ * <p>
+ * 开启静音压缩后，PCM WAV 音频先由 {@link SilenceTrimmer} 去掉长静音再识别，结果时间还原到原始音频。
+ */
 @Service
 @Slf4j
 public class SpeechToTextServiceImpl implements SpeechToTextService {
 
-    // NLS FileTrans 常量 / 配置（来自官方示例）
-    @Value("${aviscribe.stt.region-id:cn-shanghai}")
-    private String regionId;
-
-    @Value("${aviscribe.stt.endpoint-name:cn-shanghai}")
-    private String endpointName;
-
-    @Value("${aviscribe.stt.product:nls-filetrans}")
-    private String product;
-
-    @Value("${aviscribe.stt.domain:filetrans.cn-shanghai.aliyuncs.com}")
-    private String fileTransDomain;
-
-    @Value("${aviscribe.stt.api-version:2018-08-17}")
-    private String apiVersion;
+    @Value("${aviscribe.stt.hedge.enabled:false}")
+    private boolean hedgeEnabled;
 
-    @Value("${aviscribe.stt.submit-action:SubmitTask}")
-    private String submitAction;
+    /**
+     * 以 NLS 历史耗时的该分位数作为启动备用引擎的时限。
+     */
+    @Value("${aviscribe.stt.hedge.percentile:0.95}")
+    private double hedgePercentile;
 
-    @Value("${aviscribe.stt.query-action:GetTaskResult}")
-    private String queryAction;
+    @Value("${aviscribe.stt.hedge.min-delay-seconds:30}")
+    private long hedgeMinDelaySeconds;
 
-    @Value("${aviscribe.stt.app-key:}")
-    private String appKey;
+    /**
+     * 超过该时长的媒体不对冲，避免本地长时间占用 CPU。
+     */
+    @Value("${aviscribe.stt.hedge.max-duration-seconds:1800}")
+    private int hedgeMaxDurationSeconds;
 
-    @Value("${aviscribe.stt.access-key-id:}")
-    private String accessKeyId;
+    @Value("${aviscribe.stt.vad.enabled:false}")
+    private boolean vadEnabled;
 
-    @Value("${aviscribe.stt.access-key-secret:}")
-    private String accessKeySecret;
+    /**
+     * 语音帧的能量阈值（dBFS）。
+     */
+    @Value("${aviscribe.stt.vad.threshold-db:-40}")
+    private double vadThresholdDb;
 
-    @Value("${aviscribe.stt.max-poll-times:60}")
-    private int maxPollTimes;
+    @Value("${aviscribe.stt.vad.min-silence-ms:1000}")
+    private long vadMinSilenceMs;
 
-    @Value("${aviscribe.stt.poll-interval-ms:3000}")
-    private long pollIntervalMs;
+    @Value("${aviscribe.stt.vad.keep-silence-ms:400}")
+    private long vadKeepSilenceMs;
 
     /**
-     * 提供给阿里云访问音频文件的公网基址，例如 http://your-domain/audio/
-     * 实际的文件名由本地音频文件名拼接。
+     * 压缩掉的时长不足原时长该比例时直接使用原始音频。
      */
-    @Value("${aviscribe.stt.public-audio-base-url:http://127.0.0.1:8090/audio/}")
-    private String publicAudioBaseUrl;
-
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    private final OssUploadService ossUploadService;
+    @Value("${aviscribe.stt.vad.min-saving-ratio:0.1}")
+    private double vadMinSavingRatio;
+
+    private final SttEngineRouter router;
+    private final TaskCancellation taskCancellation;
+    private final TaskSegmentService taskSegmentService;
+    private final SttLatencyModel latencyModel;
+    private final NlsCallbackSigner callbackSigner;
+    private final NlsResultPoller nlsResultPoller;
+    private final StageExecutors stageExecutors;
+    private final ScheduledExecutorService hedgeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stt-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SpeechToTextServiceImpl(SttEngineRouter router,
+                                   TaskCancellation taskCancellation,
+                                   TaskSegmentService taskSegmentService,
+                                   SttLatencyModel latencyModel,
+                                   NlsCallbackSigner callbackSigner,
+                                   NlsResultPoller nlsResultPoller,
+                                   StageExecutors stageExecutors) {
+        this.router = router;
+        this.taskCancellation = taskCancellation;
+        this.taskSegmentService = taskSegmentService;
+        this.latencyModel = latencyModel;
+        this.callbackSigner = callbackSigner;
+        this.nlsResultPoller = nlsResultPoller;
+        this.stageExecutors = stageExecutors;
+    }
 
-    @Autowired
-    public SpeechToTextServiceImpl(OssUploadService ossUploadService) {
-        this.ossUploadService = ossUploadService;
+    @PreDestroy
+    public void shutdown() {
+        hedgeScheduler.shutdownNow();
     }
 
     @Override
-    public String transcribe(Task task, String audioPath) {
+    public CompletableFuture<String> transcribe(Task task, String audioPath) {
         if (audioPath == null || audioPath.isEmpty()) {
             throw new IllegalArgumentException("audioPath 不能为空");
         }
-        // 调试：打印当前使用的 appKey / accessKeyId 前缀，确认配置是否从环境变量正确注入
-        log.info("[STT] 当前使用的 appKey 前缀: {}..., accessKeyId 前缀: {}...",
-                appKey != null && appKey.length() > 6 ? appKey.substring(0, 6) : appKey,
-                accessKeyId != null && accessKeyId.length() > 6 ? accessKeyId.substring(0, 6) : accessKeyId);
-
         File audioFile = new File(audioPath);
         if (!audioFile.exists() || !audioFile.isFile()) {
             throw new IllegalArgumentException("音频文件不存在: " + audioPath);
         }
+        Long taskId = task != null ? task.getId() : null;
+        TrimmedAudio trimmed = trimSilence(task, audioPath);
+        // 压缩后引擎看到的是更短的音频，路由、对冲与轮询节奏都按压缩后的时长计算
+        Task sttTask = trimmed != null ? trimmed.task() : task;
+        String sttPath = trimmed != null ? trimmed.path().toString() : audioPath;
+        SttEngine engine = router.select(sttTask);
+        log.info("[STT] taskId={} 使用 {} 引擎识别", taskId, engine.name());
+        CompletableFuture<String> future;
         try {
-            String result = fileTransRecognize(task, audioFile);
-            log.info("[STT] 识别完成, taskId={}, length={} chars",
-                    task != null ? task.getId() : null,
-                    result != null ? result.length() : 0);
-            return result;
+            // 清理上一次（重试前）识别留下的部分结果
+            taskSegmentService.deleteByTask(taskId);
+            CompletableFuture<String> primary = engine.transcribe(sttTask, sttPath);
+            future = shouldHedge(sttTask, engine) ? new HedgedTranscription(sttTask, sttPath, engine, primary).result : primary;
         } catch (Exception e) {
-            log.error("[STT] 调用阿里云录音文件识别出错", e);
+            log.error("[STT] 调用 {} 引擎识别出错", engine.name(), e);
+            if (trimmed != null) {
+                trimmed.delete();
+            }
             throw new RuntimeException("调用语音识别服务失败: " + e.getMessage(), e);
         }
+        // 任务取消时放弃识别
+        taskCancellation.onCancel(() -> future.cancel(false));
+        // 结果还原与落库切回转录阶段的线程，不占用完成识别的轮询 / 回调线程
+        return future.handleAsync((engineResult, error) -> {
+            if (trimmed != null) {
+                trimmed.delete();
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof CancellationException) {
+                    throw (CancellationException) cause;
+                }
+                log.error("[STT] 获取识别结果出错, taskId={}, engine={}", taskId, engine.name(), cause);
+                throw new CompletionException(new RuntimeException("调用语音识别服务失败: " + cause.getMessage(), cause));
+            }
+            String result = engineResult;
+            if (trimmed != null) {
+                result = trimmed.offsets().remapResult(engineResult);
+                remapSegments(taskId, trimmed.offsets());
+            }
+            log.info("[STT] 识别完成, taskId={}, length={} chars", taskId, result != null ? result.length() : 0);
+            saveWholeResult(task, result);
+            return result;
+        }, stageExecutors.executor(PipelineStage.TRANSCRIBE));
     }
 
     /**
-     * 使用 NLS FileTrans SubmitTask / GetTaskResult 实现录音文件识别。
+     * 压缩后的音频、时间映射与交给引擎的任务副本（时长与音频路径为压缩后的值）。
      */
-    private String fileTransRecognize(Task task, File audioFile) throws Exception {
-        // 1. 先将本地音频上传到 OSS，获取公网可访问的 file_link
-        String fileLink;
-        try {
-            fileLink = ossUploadService.uploadAudio(audioFile);
-        } catch (Exception e) {
-            log.error("[STT] 上传音频到 OSS 失败，将回退使用本地 publicAudioBaseUrl: {}", e.getMessage(), e);
-            String fileName = audioFile.getName();
-            fileLink = publicAudioBaseUrl;
-            if (!fileLink.endsWith("/")) {
-                fileLink += "/";
+    private record TrimmedAudio(Path path, SilenceTrimmer.OffsetMap offsets, Task task) {
+        void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("[STT] 删除静音压缩音频失败: {}", path);
             }
-            fileLink += URLEncoder.encode(fileName, StandardCharsets.UTF_8);
         }
+    }
 
-        log.info("[STT] 使用 NLS FileTrans, fileLink={}", fileLink);
-
-        // 2. 创建 NLS FileTrans 客户端
-        DefaultProfile.addEndpoint(endpointName, regionId, product, fileTransDomain);
-        DefaultProfile profile = DefaultProfile.getProfile(regionId, accessKeyId, accessKeySecret);
-        IAcsClient client = new DefaultAcsClient(profile);
-
-        // 3. 提交任务（SubmitTask）
-        String taskId = submitFileTransTask(client, appKey, fileLink);
-        if (taskId == null || taskId.isEmpty()) {
-            throw new RuntimeException("提交录音文件识别请求失败，TaskId 为空");
+    /**
+     * 压缩长静音；未开启、不是 PCM WAV、可压缩的比例太小或出错时返回 null，使用原始音频。
+     */
+    private TrimmedAudio trimSilence(Task task, String audioPath) {
+        if (!vadEnabled || task == null) {
+            return null;
+        }
+        Path source = Paths.get(audioPath);
+        Path target = source.resolveSibling(source.getFileName() + ".vad.wav");
+        try {
+            long start = System.currentTimeMillis();
+            SilenceTrimmer.Result result = SilenceTrimmer.trim(source, target,
+                    new SilenceTrimmer.Settings(vadThresholdDb, vadMinSilenceMs, vadKeepSilenceMs));
+            if (result == null) {
+                log.debug("[STT] 音频不是 16kHz 单声道 PCM WAV，跳过静音压缩: {}", audioPath);
+                return null;
+            }
+            long savedMs = result.originalMs() - result.trimmedMs();
+            // 几乎没有语音时仍交给引擎，由引擎给出空结果
+            if (result.trimmedMs() < 1000 || savedMs < result.originalMs() * vadMinSavingRatio) {
+                Files.deleteIfExists(target);
+                return null;
+            }
+            log.info("[STT] taskId={} 静音压缩 {} ms -> {} ms, 耗时 {} ms", task.getId(),
+                    result.originalMs(), result.trimmedMs(), System.currentTimeMillis() - start);
+            Task sttTask = new Task();
+            sttTask.setId(task.getId());
+            sttTask.setUserId(task.getUserId());
+            sttTask.setTaskName(task.getTaskName());
+            sttTask.setAudioLocalPath(target.toString());
+            sttTask.setDurationSeconds((int) Math.max(1, Math.round(result.trimmedMs() / 1000.0)));
+            return new TrimmedAudio(target, result.offsets(), sttTask);
+        } catch (IOException e) {
+            log.warn("[STT] 静音压缩失败，使用原始音频: {}", e.getMessage());
+            new TrimmedAudio(target, null, null).delete();
+            return null;
         }
-        log.info("[STT] 录音文件识别请求成功，task_id={}", taskId);
-
-        // 4. 轮询获取结果（GetTaskResult）
-        return queryFileTransResult(client, taskId);
     }
 
-    private String submitFileTransTask(IAcsClient client, String appKey, String fileLink) throws ClientException {
-        CommonRequest postRequest = new CommonRequest();
-        postRequest.setDomain(fileTransDomain);
-        postRequest.setVersion(apiVersion);
-        postRequest.setAction(submitAction);
-        postRequest.setProduct(product);
-
-        JSONObject taskObject = new JSONObject();
-        taskObject.put("appkey", appKey);
-        taskObject.put("file_link", fileLink);
-        taskObject.put("version", "4.0");
-        taskObject.put("enable_words", true);
-        String taskJson = taskObject.toJSONString();
-        log.info("[STT] SubmitTask 请求体: {}", taskJson);
+    /**
+     * 分段识别时各段已按压缩后的时间保存，识别完成后改为原始时间。
+     */
+    private void remapSegments(Long taskId, SilenceTrimmer.OffsetMap offsets) {
+        if (taskId == null) {
+            return;
+        }
+        try {
+            for (TaskSegment segment : taskSegmentService.lambdaQuery().eq(TaskSegment::getTaskId, taskId).list()) {
+                TaskSegment update = new TaskSegment();
+                update.setId(segment.getId());
+                update.setStartMs(offsets.toOriginalMs(segment.getStartMs(), false));
+                update.setEndMs(offsets.toOriginalMs(segment.getEndMs(), true));
+                taskSegmentService.updateById(update);
+            }
+        } catch (Exception e) {
+            log.warn("[STT] 还原分段时间失败, taskId={}: {}", taskId, e.getMessage());
+        }
+    }
 
-        postRequest.putBodyParameter("Task", taskJson);
-        postRequest.setMethod(MethodType.POST);
+    @Override
+    public boolean handleCallback(String nonce, String signature, String body) {
+        if (!callbackSigner.verify(nonce, signature)) {
+            throw new AccessDeniedException("识别回调签名无效");
+        }
+        boolean matched = nlsResultPoller.onCallback(nonce, body);
+        if (!matched) {
+            log.info("[STT] 收到无对应等待任务的识别回调（可能已由轮询取得结果），忽略");
+        }
+        return matched;
+    }
 
-        CommonResponse postResponse = client.getCommonResponse(postRequest);
-        String data = postResponse.getData();
-        log.info("[STT] SubmitTask 响应: {}", data);
+    private boolean shouldHedge(Task task, SttEngine primary) {
+        if (!hedgeEnabled || router.alternative(primary) == null) {
+            return false;
+        }
+        Integer duration = task != null ? task.getDurationSeconds() : null;
+        return duration != null && duration > 0 && duration <= hedgeMaxDurationSeconds;
+    }
 
-        if (postResponse.getHttpStatus() != 200) {
-            throw new ClientException("SubmitTask 调用失败, httpStatus=" + postResponse.getHttpStatus());
+    /**
+     * 一次对冲识别：主引擎先行，时限到达或主引擎失败时启动备用引擎，任一路成功即完成，全部失败才失败。
+     */
+    private final class HedgedTranscription {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final List<CompletableFuture<String>> attempts = new ArrayList<>();
+        private final Task task;
+        private final String audioPath;
+        private final SttEngine primaryEngine;
+        private final ScheduledFuture<?> timer;
+        private int running;
+        private boolean hedgeStarted;
+        private Throwable lastError;
+
+        private HedgedTranscription(Task task, String audioPath, SttEngine primaryEngine, CompletableFuture<String> primary) {
+            this.task = task;
+            this.audioPath = audioPath;
+            this.primaryEngine = primaryEngine;
+            long delayMs = Math.max(TimeUnit.SECONDS.toMillis(hedgeMinDelaySeconds),
+                    Math.round(latencyModel.percentileSeconds(task.getDurationSeconds(), hedgePercentile) * 1000));
+            add(primary, primaryEngine);
+            this.timer = hedgeScheduler.schedule(this::startHedge, delayMs, TimeUnit.MILLISECONDS);
+            // 结果确定（或被取消）后停止计时并取消仍在进行的另一路
+            result.whenComplete((value, error) -> {
+                timer.cancel(false);
+                cancelAttempts();
+            });
         }
 
-        JSONObject result = JSONObject.parseObject(data);
-        String statusText = result.getString("StatusText");
-        if (!"SUCCESS".equalsIgnoreCase(statusText)) {
-            throw new ClientException("SubmitTask 返回非 SUCCESS, StatusText=" + statusText);
+        private synchronized void add(CompletableFuture<String> attempt, SttEngine engine) {
+            attempts.add(attempt);
+            running++;
+            attempt.whenComplete((value, error) -> onComplete(engine, value, error));
         }
-        return result.getString("TaskId");
-    }
 
-    private String queryFileTransResult(IAcsClient client, String taskId) throws InterruptedException, ClientException {
-        CommonRequest getRequest = new CommonRequest();
-        getRequest.setDomain(fileTransDomain);
-        getRequest.setVersion(apiVersion);
-        getRequest.setAction(queryAction);
-        getRequest.setProduct(product);
-        getRequest.putQueryParameter("TaskId", taskId);
-        getRequest.setMethod(MethodType.GET);
-
-        String resultText = null;
-        for (int i = 0; i < maxPollTimes; i++) {
-            CommonResponse getResponse = client.getCommonResponse(getRequest);
-            String data = getResponse.getData();
-            log.info("[STT] GetTaskResult 响应: {}", data);
-
-            if (getResponse.getHttpStatus() != 200) {
-                throw new ClientException("GetTaskResult 调用失败, httpStatus=" + getResponse.getHttpStatus());
+        private void onComplete(SttEngine engine, String value, Throwable error) {
+            if (error == null) {
+                if (result.complete(value) && hedgeStarted) {
+                    log.info("[STT] 对冲识别由 {} 引擎先返回, taskId={}", engine.name(), task.getId());
+                }
+                return;
             }
-
-            JSONObject root = JSONObject.parseObject(data);
-            String statusText = root.getString("StatusText");
-            if ("RUNNING".equalsIgnoreCase(statusText) || "QUEUEING".equalsIgnoreCase(statusText)) {
-                Thread.sleep(pollIntervalMs);
-                continue;
+            boolean hedgeNow;
+            synchronized (this) {
+                running--;
+                lastError = error;
+                hedgeNow = !hedgeStarted;
+                if (running == 0 && hedgeStarted) {
+                    result.completeExceptionally(error);
+                }
+            }
+            if (hedgeNow && !result.isDone()) {
+                log.warn("[STT] {} 引擎识别失败，立即改用备用引擎, taskId={}", engine.name(), task.getId());
+                startHedge();
             }
+        }
 
-            if ("SUCCESS".equalsIgnoreCase(statusText)) {
-                resultText = root.getString("Result");
-                if (resultText == null) {
-                    resultText = ""; // 可能是静音等情况
+        private void startHedge() {
+            synchronized (this) {
+                if (hedgeStarted || result.isDone()) {
+                    return;
+                }
+                hedgeStarted = true;
+                running++; // 占位，避免备用引擎提交前主引擎失败导致提前判定为全部失败
+            }
+            SttEngine secondary = router.alternative(primaryEngine);
+            if (secondary != null) {
+                try {
+                    log.info("[STT] {} 引擎超过时限未返回，启动 {} 引擎对冲, taskId={}",
+                            primaryEngine.name(), secondary.name(), task.getId());
+                    add(secondary.transcribe(task, audioPath), secondary);
+                } catch (Exception e) {
+                    log.warn("[STT] 启动备用引擎失败, taskId={}: {}", task.getId(), e.getMessage());
+                }
+            }
+            synchronized (this) {
+                running--;
+                if (running == 0 && !result.isDone()) {
+                    result.completeExceptionally(lastError != null ? lastError : new RuntimeException("没有可用的识别引擎"));
                 }
-                break;
-            } else {
-                throw new ClientException("GetTaskResult 返回错误状态, StatusText=" + statusText + ", data=" + data);
             }
         }
 
-        if (resultText == null) {
-            throw new ClientException("在最大轮询次数内未获得识别结果, taskId=" + taskId);
+        private synchronized void cancelAttempts() {
+            attempts.forEach(attempt -> attempt.cancel(false));
+        }
+    }
+
+    /**
+     * 未分段识别时整段结果即为唯一的部分结果，可在排版完成前先行展示。
+     */
+    private void saveWholeResult(Task task, String result) {
+        if (task == null || task.getId() == null) {
+            return;
+        }
+        try {
+            boolean hasSegments = taskSegmentService.lambdaQuery()
+                    .eq(TaskSegment::getTaskId, task.getId())
+                    .exists();
+            if (!hasSegments) {
+                Integer durationSeconds = task.getDurationSeconds();
+                long endMs = durationSeconds != null ? durationSeconds * 1000L : 0L;
+                taskSegmentService.saveSegment(task.getId(), 0, 0L, endMs, result);
+            }
+        } catch (Exception e) {
+            log.warn("[STT] 保存识别结果分段失败, taskId={}: {}", task.getId(), e.getMessage());
         }
-        return resultText;
     }
 }
@@ -0,0 +1,59 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.entity.Task;
+import com.aviscribe.service.SttEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 为任务选择识别引擎：时长已知且较短、本地排队未满时走本地离线识别，
+ * 其余（长音频、时长未知、本地繁忙）走 NLS；只配置了其中一种引擎时全部交给它。
+ */
+@Component
+@Slf4j
+public class SttEngineRouter {
+
+    @Value("${aviscribe.stt.routing.local-max-duration-seconds:120}")
+    private int localMaxDurationSeconds;
+
+    /**
+     * 本地已提交未完成的识别达到该数量后，新任务改走 NLS。
+     */
+    @Value("${aviscribe.stt.routing.local-max-pending:4}")
+    private int localMaxPending;
+
+    private final NlsSttEngine nlsEngine;
+    private final LocalSttEngine localEngine;
+
+    public SttEngineRouter(NlsSttEngine nlsEngine, LocalSttEngine localEngine) {
+        this.nlsEngine = nlsEngine;
+        this.localEngine = localEngine;
+    }
+
+    public SttEngine select(Task task) {
+        if (!localEngine.isAvailable()) {
+            return nlsEngine;
+        }
+        if (!nlsEngine.isAvailable()) {
+            return localEngine;
+        }
+        Integer duration = task != null ? task.getDurationSeconds() : null;
+        boolean shortMedia = duration != null && duration > 0 && duration <= localMaxDurationSeconds;
+        if (shortMedia && localEngine.pendingCount() < localMaxPending) {
+            return localEngine;
+        }
+        return nlsEngine;
+    }
+
+    /**
+     * NLS 迟迟未返回时用于对冲的备用引擎：本地已配置且未饱和时返回本地引擎，否则返回 null。
+     * 只有 NLS 有历史耗时可用来判断“明显偏慢”，本地为主引擎时不对冲。
+     */
+    public SttEngine alternative(SttEngine primary) {
+        if (primary != nlsEngine || !localEngine.isAvailable()) {
+            return null;
+        }
+        return localEngine.pendingCount() < localMaxPending ? localEngine : null;
+    }
+}
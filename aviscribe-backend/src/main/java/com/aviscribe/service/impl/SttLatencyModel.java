@@ -0,0 +1,131 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.entity.SttLatency;
+import com.aviscribe.mapper.SttLatencyMapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 根据历史识别耗时预测新任务的处理时长：耗时 ≈ 固定开销 + 速率 × 媒体时长，
+ * 速率取最近若干次观测的中位数，每次识别完成后更新并落库，重启后从库中恢复。
+ */
+@Component
+@Slf4j
+public class SttLatencyModel {
+
+    @Value("${aviscribe.stt.latency.base-seconds:5}")
+    private double baseSeconds;
+
+    /**
+     * 无历史数据时的默认速率（处理秒数 / 媒体秒数）。
+     */
+    @Value("${aviscribe.stt.latency.default-rate:0.2}")
+    private double defaultRate;
+
+    /**
+     * 媒体时长未知时假定的时长（秒）。
+     */
+    @Value("${aviscribe.stt.latency.unknown-duration-seconds:600}")
+    private int unknownDurationSeconds;
+
+    @Value("${aviscribe.stt.latency.history-size:200}")
+    private int historySize;
+
+    private final SttLatencyMapper sttLatencyMapper;
+    private final Deque<Double> rates = new ArrayDeque<>();
+
+    public SttLatencyModel(SttLatencyMapper sttLatencyMapper) {
+        this.sttLatencyMapper = sttLatencyMapper;
+    }
+
+    /**
+     * 应用就绪后再读库：此时数据源初始化（含建表脚本）已完成，加载前的预测使用默认速率。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHistory() {
+        try {
+            List<SttLatency> history = sttLatencyMapper.selectList(new LambdaQueryWrapper<SttLatency>()
+                    .orderByDesc(SttLatency::getId)
+                    .last("LIMIT " + historySize));
+            for (int i = history.size() - 1; i >= 0; i--) {
+                SttLatency item = history.get(i);
+                addRate(item.getDurationSeconds(), item.getProcessingMs());
+            }
+            log.info("[STT] 已加载 {} 条识别耗时记录，当前速率 {}", rates.size(), currentRate());
+        } catch (Exception e) {
+            log.warn("[STT] 加载识别耗时记录失败，使用默认速率: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 预测识别耗时（秒）。
+     */
+    public double predictSeconds(Integer durationSeconds) {
+        int duration = durationSeconds != null && durationSeconds > 0 ? durationSeconds : unknownDurationSeconds;
+        return baseSeconds + currentRate() * duration;
+    }
+
+    /**
+     * 按最近速率的 percentile 分位数估计识别耗时（秒），用于判断识别是否已明显慢于常态。
+     */
+    public double percentileSeconds(Integer durationSeconds, double percentile) {
+        int duration = durationSeconds != null && durationSeconds > 0 ? durationSeconds : unknownDurationSeconds;
+        return baseSeconds + rateAt(percentile) * duration;
+    }
+
+    public void record(Long taskId, Integer durationSeconds, long processingMs, int pollCount) {
+        addRate(durationSeconds, processingMs);
+        SttLatency latency = new SttLatency();
+        latency.setTaskId(taskId);
+        latency.setDurationSeconds(durationSeconds);
+        latency.setProcessingMs(processingMs);
+        latency.setPollCount(pollCount);
+        latency.setCreateTime(LocalDateTime.now());
+        try {
+            sttLatencyMapper.insert(latency);
+        } catch (Exception e) {
+            log.warn("[STT] 保存识别耗时记录失败: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void addRate(Integer durationSeconds, Long processingMs) {
+        if (durationSeconds == null || durationSeconds <= 0 || processingMs == null) {
+            return;
+        }
+        double rate = Math.max(0, processingMs / 1000.0 - baseSeconds) / durationSeconds;
+        rates.addLast(rate);
+        while (rates.size() > historySize) {
+            rates.removeFirst();
+        }
+    }
+
+    synchronized double rateAt(double percentile) {
+        if (rates.isEmpty()) {
+            return defaultRate;
+        }
+        double[] sorted = rates.stream().mapToDouble(Double::doubleValue).toArray();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(Math.min(1, Math.max(0, percentile)) * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    synchronized double currentRate() {
+        if (rates.isEmpty()) {
+            return defaultRate;
+        }
+        double[] sorted = rates.stream().mapToDouble(Double::doubleValue).toArray();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
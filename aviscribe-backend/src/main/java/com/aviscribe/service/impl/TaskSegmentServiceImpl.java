@@ -0,0 +1,94 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.entity.TaskSegment;
+import com.aviscribe.mapper.TaskSegmentMapper;
+import com.aviscribe.service.TaskSegmentService;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class TaskSegmentServiceImpl extends ServiceImpl<TaskSegmentMapper, TaskSegment> implements TaskSegmentService {
+
+    @Override
+    public void saveSegment(Long taskId, int seq, long startMs, long endMs, String result) {
+        if (taskId == null) {
+            return;
+        }
+        String text = sentenceText(result);
+        TaskSegment segment = new TaskSegment();
+        segment.setTaskId(taskId);
+        segment.setSeq(seq);
+        segment.setStartMs(startMs);
+        segment.setEndMs(endMs);
+        segment.setText(text);
+        segment.setCreateTime(LocalDateTime.now());
+        try {
+            save(segment);
+        } catch (DuplicateKeyException e) {
+            // 任务重试后再次识别同一分段
+            update(new LambdaUpdateWrapper<TaskSegment>()
+                    .eq(TaskSegment::getTaskId, taskId)
+                    .eq(TaskSegment::getSeq, seq)
+                    .set(TaskSegment::getStartMs, startMs)
+                    .set(TaskSegment::getEndMs, endMs)
+                    .set(TaskSegment::getText, text)
+                    .set(TaskSegment::getCreateTime, segment.getCreateTime()));
+        }
+    }
+
+    /**
+     * 拼接识别结果中各句的文本。
+     */
+    static String sentenceText(String result) {
+        if (result == null || result.isBlank()) {
+            return "";
+        }
+        JSONArray sentences = JSONObject.parseObject(result).getJSONArray("Sentences");
+        if (sentences == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < sentences.size(); i++) {
+            String sentence = sentences.getJSONObject(i).getString("Text");
+            if (sentence != null) {
+                text.append(sentence);
+            }
+        }
+        return text.toString();
+    }
+
+    @Override
+    public List<TaskSegment> listAfter(Long taskId, int afterSeq) {
+        List<TaskSegment> segments = lambdaQuery()
+                .eq(TaskSegment::getTaskId, taskId)
+                .gt(TaskSegment::getSeq, afterSeq)
+                .orderByAsc(TaskSegment::getSeq)
+                .list();
+        List<TaskSegment> contiguous = new ArrayList<>();
+        int expected = afterSeq + 1;
+        for (TaskSegment segment : segments) {
+            if (segment.getSeq() != expected) {
+                break;
+            }
+            contiguous.add(segment);
+            expected++;
+        }
+        return contiguous;
+    }
+
+    @Override
+    public void deleteByTask(Long taskId) {
+        if (taskId == null) {
+            return;
+        }
+        lambdaUpdate().eq(TaskSegment::getTaskId, taskId).remove();
+    }
+}
@@ -3,30 +3,71 @@ package com.aviscribe.service.impl;
 import com.aviscribe.common.enums.TaskStatus;
 import com.aviscribe.common.enums.UserRole;
 import com.aviscribe.common.utils.FileUtils;
-import com.aviscribe.common.utils.FfmpegUtils;
 import com.aviscribe.common.utils.SecurityUtils;
+import com.aviscribe.dto.PartialTranscriptDTO;
 import com.aviscribe.dto.TaskInfoDTO;
+import com.aviscribe.dto.TranscriptSentenceDTO;
 import com.aviscribe.entity.Task;
+import com.aviscribe.entity.TranscriptSentence;
 import com.aviscribe.mapper.TaskMapper;
+import com.aviscribe.pipeline.AdmissionController;
+import com.aviscribe.pipeline.TaskCancellation;
+import com.aviscribe.service.MediaProbeService;
+import com.aviscribe.service.TaskSegmentService;
 import com.aviscribe.service.TaskService;
+import com.aviscribe.service.TranscriptService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.data.domain.Pageable; // Spring Data
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements TaskService {
 
+    /**
+     * 尚未结束（仍需处理）的任务状态
+     */
+    private static final List<Integer> IN_PROGRESS_CODES = List.of(
+            TaskStatus.PENDING.getCode(),
+            TaskStatus.DOWNLOADING.getCode(),
+            TaskStatus.EXTRACTING_AUDIO.getCode(),
+            TaskStatus.TRANSCRIBING.getCode(),
+            TaskStatus.FORMATTING.getCode());
+
+    private static final List<Integer> RETRYABLE_CODES = List.of(
+            TaskStatus.FAILED.getCode(),
+            TaskStatus.CANCELLED.getCode());
+
     private final FileUtils fileUtils;
-    private final FfmpegUtils ffmpegUtils;
+    private final MediaProbeService mediaProbeService;
+    private final AdmissionController admissionController;
+    private final TaskCancellation taskCancellation;
+    private final TaskSegmentService taskSegmentService;
+    private final TranscriptService transcriptService;
 
-    public TaskServiceImpl(FileUtils fileUtils, FfmpegUtils ffmpegUtils) {
+    public TaskServiceImpl(FileUtils fileUtils,
+                           MediaProbeService mediaProbeService,
+                           AdmissionController admissionController,
+                           TaskCancellation taskCancellation,
+                           TaskSegmentService taskSegmentService,
+                           TranscriptService transcriptService) {
         this.fileUtils = fileUtils;
-        this.ffmpegUtils = ffmpegUtils;
+        this.mediaProbeService = mediaProbeService;
+        this.admissionController = admissionController;
+        this.taskCancellation = taskCancellation;
+        this.taskSegmentService = taskSegmentService;
+        this.transcriptService = transcriptService;
     }
 
     @Override
@@ -36,7 +77,73 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
             return null;
         }
         ensureTaskAccessible(task);
-        return TaskInfoDTO.fromEntity(task);
+        TaskInfoDTO dto = TaskInfoDTO.fromEntity(task);
+        admissionController.fillQueueEstimate(dto, task);
+        return dto;
+    }
+
+    @Override
+    public PartialTranscriptDTO getPartialTranscript(Long id, int afterSeq) {
+        Task task = this.getById(id);
+        if (task == null) {
+            return null;
+        }
+        ensureTaskAccessible(task);
+        PartialTranscriptDTO dto = new PartialTranscriptDTO();
+        dto.setTaskId(task.getId());
+        dto.setTaskStatus(task.getTaskStatus());
+        dto.setTaskStatusText(TaskStatus.getDescriptionByCode(task.getTaskStatus()));
+        List<PartialTranscriptDTO.Segment> segments = taskSegmentService.listAfter(id, afterSeq).stream()
+                .map(PartialTranscriptDTO.Segment::fromEntity)
+                .toList();
+        dto.setSegments(segments);
+        dto.setLastSeq(segments.isEmpty() ? afterSeq : segments.get(segments.size() - 1).getSeq());
+        return dto;
+    }
+
+    @Override
+    public List<TranscriptSentenceDTO> getTranscriptByTime(Long id, long fromMs, long toMs, boolean withWords) {
+        if (fromMs >= toMs) {
+            throw new IllegalArgumentException("时间范围无效");
+        }
+        if (!prepareTranscript(id)) {
+            return null;
+        }
+        return transcriptService.findByTime(id, fromMs, toMs, withWords);
+    }
+
+    @Override
+    public List<TranscriptSentenceDTO> getTranscriptByOffset(Long id, int fromOffset, int toOffset, boolean withWords) {
+        if (fromOffset >= toOffset) {
+            throw new IllegalArgumentException("文本范围无效");
+        }
+        if (!prepareTranscript(id)) {
+            return null;
+        }
+        return transcriptService.findByOffset(id, fromOffset, toOffset, withWords);
+    }
+
+    /**
+     * 校验访问权限；按句存储之前完成的任务在首次查询时从原始结果补建，返回任务是否存在。
+     */
+    private boolean prepareTranscript(Long id) {
+        // 不加载 raw_text，只有需要补建时才读取
+        Task task = lambdaQuery()
+                .select(Task::getId, Task::getUserId)
+                .eq(Task::getId, id)
+                .one();
+        if (task == null) {
+            return false;
+        }
+        ensureTaskAccessible(task);
+        boolean indexed = transcriptService.lambdaQuery().eq(TranscriptSentence::getTaskId, id).exists();
+        if (!indexed) {
+            Task withText = lambdaQuery().select(Task::getId, Task::getRawText).eq(Task::getId, id).one();
+            if (withText != null && withText.getRawText() != null) {
+                transcriptService.saveTranscript(id, withText.getRawText());
+            }
+        }
+        return true;
     }
 
     @Override
@@ -52,7 +159,7 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         wrapper.orderByDesc(Task::getCreateTime); // 按创建时间倒序
 
         Page<Task> resultPage = this.page(mpPage, wrapper);
-        resultPage.getRecords().forEach(this::ensureDurationPresent);
+        resultPage.getRecords().forEach(this::ensureMediaInfoPresent);
         return (Page<TaskInfoDTO>) resultPage.convert(TaskInfoDTO::fromEntity);
     }
 
@@ -61,9 +168,13 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         Task task = this.getById(id);
         if (task != null) {
             ensureTaskAccessible(task);
+            // 先中止仍在执行的处理，避免外部进程继续写入即将删除的文件
+            taskCancellation.cancel(id);
             // 删除关联的本地视频、音频文件
             fileUtils.deleteFileQuietly(task.getVideoLocalPath());
             fileUtils.deleteFileQuietly(task.getAudioLocalPath());
+            taskSegmentService.deleteByTask(id);
+            transcriptService.deleteByTask(id);
             this.removeById(id);
         }
     }
@@ -76,7 +187,10 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         if (status == TaskStatus.COMPLETED || status == TaskStatus.FAILED) {
             update.setFinishTime(LocalDateTime.now());
         }
-        this.updateById(update);
+        // 已取消的任务不再被处理流程改写状态
+        this.update(update, new LambdaUpdateWrapper<Task>()
+                .eq(Task::getId, taskId)
+                .ne(Task::getTaskStatus, TaskStatus.CANCELLED.getCode()));
     }
 
     @Override
@@ -86,7 +200,62 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         update.setTaskStatus(TaskStatus.FAILED.getCode());
         update.setErrorLog(error);
         update.setFinishTime(LocalDateTime.now());
-        this.updateById(update);
+        this.update(update, new LambdaUpdateWrapper<Task>()
+                .set(Task::getLeaseOwner, null)
+                .set(Task::getLeaseExpireTime, null)
+                .eq(Task::getId, taskId)
+                .ne(Task::getTaskStatus, TaskStatus.CANCELLED.getCode()));
+    }
+
+    /**
+     * 批量推进处理中任务的状态，只向前推进且仅作用于仍持有租约的任务，
+     * 因此延迟写入不会覆盖更新的状态，也不会改写已退回队列或已结束的任务。
+     */
+    @Override
+    public int advanceStatus(Collection<Long> taskIds, TaskStatus status) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            return 0;
+        }
+        Task update = new Task();
+        update.setTaskStatus(status.getCode());
+        return this.baseMapper.update(update, new LambdaUpdateWrapper<Task>()
+                .in(Task::getId, taskIds)
+                .lt(Task::getTaskStatus, status.getCode())
+                .isNotNull(Task::getLeaseOwner));
+    }
+
+    /**
+     * 一次更新写入阶段产物、检查点与下一状态并清空阶段进度；进入完成状态时同时写入完成时间并释放租约。
+     */
+    @Override
+    public void saveStageResult(Task checkpoint, TaskStatus nextStatus) {
+        checkpoint.setTaskStatus(nextStatus.getCode());
+        LambdaUpdateWrapper<Task> wrapper = new LambdaUpdateWrapper<Task>()
+                .set(Task::getProgressPercent, null)
+                .set(Task::getProgressMs, null)
+                .set(Task::getProgressSpeed, null)
+                .eq(Task::getId, checkpoint.getId())
+                .ne(Task::getTaskStatus, TaskStatus.CANCELLED.getCode());
+        if (nextStatus == TaskStatus.COMPLETED) {
+            checkpoint.setFinishTime(LocalDateTime.now());
+            wrapper.set(Task::getLeaseOwner, null)
+                    .set(Task::getLeaseExpireTime, null);
+        }
+        this.update(checkpoint, wrapper);
+    }
+
+    /**
+     * 写入阶段进度；与 advanceStatus 一样只作用于仍持有租约、且尚未越过该阶段的任务，延迟写入不会留下过期进度。
+     */
+    @Override
+    public void updateProgress(Long taskId, TaskStatus stage, Integer percent, Long progressMs, Double speed) {
+        this.update(new LambdaUpdateWrapper<Task>()
+                .set(Task::getProgressPercent, percent)
+                .set(Task::getProgressMs, progressMs)
+                .set(Task::getProgressSpeed, speed)
+                .eq(Task::getId, taskId)
+                .le(Task::getTaskStatus, stage.getCode())
+                .isNotNull(Task::getLeaseOwner));
     }
 
     @Override
@@ -108,34 +277,255 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         this.updateById(update);
     }
 
-    private void ensureDurationPresent(Task task) {
+    @Override
+    public void cancelTask(Long taskId) {
+        Task task = this.getById(taskId);
         if (task == null) {
-            return;
+            throw new IllegalArgumentException("任务不存在");
         }
-        if (task.getDurationSeconds() != null && task.getDurationSeconds() > 0) {
-            return;
+        ensureTaskAccessible(task);
+        Task update = new Task();
+        update.setTaskStatus(TaskStatus.CANCELLED.getCode());
+        update.setFinishTime(LocalDateTime.now());
+        // 清除租约：集群中持有该任务的其他节点会在下次心跳时发现并中止执行
+        boolean cancelled = this.baseMapper.update(update, new LambdaUpdateWrapper<Task>()
+                .set(Task::getLeaseOwner, null)
+                .set(Task::getLeaseExpireTime, null)
+                .eq(Task::getId, taskId)
+                .in(Task::getTaskStatus, IN_PROGRESS_CODES)) > 0;
+        if (!cancelled) {
+            throw new IllegalArgumentException("任务已结束，无法取消");
         }
-        String mediaPath = firstNonBlank(task.getVideoLocalPath(), task.getAudioLocalPath());
-        if (mediaPath == null) {
-            return;
+        taskCancellation.cancel(taskId);
+    }
+
+    @Override
+    public void retryTask(Long taskId) {
+        Task task = this.getById(taskId);
+        if (task == null) {
+            throw new IllegalArgumentException("任务不存在");
         }
-        Integer duration = ffmpegUtils.getMediaDurationSeconds(mediaPath);
-        if (duration != null && duration > 0) {
-            task.setDurationSeconds(duration);
-            this.updateById(task);
+        ensureTaskAccessible(task);
+        if (!requeueFailed(task)) {
+            throw new IllegalArgumentException("只有失败或已取消的任务可以重试");
         }
     }
 
-    private String firstNonBlank(String... values) {
-        if (values == null) {
-            return null;
+    @Override
+    public List<Long> retryTasks(Collection<Long> taskIds) {
+        List<Long> retried = new ArrayList<>();
+        if (taskIds == null || taskIds.isEmpty()) {
+            return retried;
         }
-        for (String value : values) {
-            if (value != null && !value.trim().isEmpty()) {
-                return value;
+        List<Task> tasks = this.listByIds(taskIds);
+        // 先校验全部任务的访问权限，避免部分任务已重新入队后才因无权访问而中断
+        tasks.forEach(this::ensureTaskAccessible);
+        for (Task task : tasks) {
+            if (requeueFailed(task)) {
+                retried.add(task.getId());
             }
         }
-        return null;
+        return retried;
+    }
+
+    /**
+     * 将失败或已取消的任务重置为待处理，保留阶段检查点与中间产物，由调度器重新领取后从断点继续。
+     */
+    private boolean requeueFailed(Task task) {
+        if (task.getTaskStatus() == null || !RETRYABLE_CODES.contains(task.getTaskStatus())) {
+            return false;
+        }
+        return this.update(new LambdaUpdateWrapper<Task>()
+                .eq(Task::getId, task.getId())
+                .in(Task::getTaskStatus, RETRYABLE_CODES)
+                .set(Task::getTaskStatus, TaskStatus.PENDING.getCode())
+                .set(Task::getErrorLog, null)
+                .set(Task::getFinishTime, null)
+                .set(Task::getLeaseOwner, null)
+                .set(Task::getLeaseExpireTime, null));
+    }
+
+    @Override
+    public List<Long> findClaimableTaskIds(int limit) {
+        LambdaQueryWrapper<Task> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Task::getId)
+                .eq(Task::getTaskStatus, TaskStatus.PENDING.getCode())
+                .isNull(Task::getLeaseOwner)
+                .orderByAsc(Task::getId)
+                .last("LIMIT " + Math.max(1, limit));
+        return this.list(wrapper).stream().map(Task::getId).toList();
+    }
+
+    @Override
+    public boolean claimTask(Long taskId, String owner, LocalDateTime leaseExpireTime) {
+        // 条件更新：只有仍处于 PENDING 且无人持有租约时才能认领成功
+        return this.lambdaUpdate()
+                .set(Task::getLeaseOwner, owner)
+                .set(Task::getLeaseExpireTime, leaseExpireTime)
+                .eq(Task::getId, taskId)
+                .eq(Task::getTaskStatus, TaskStatus.PENDING.getCode())
+                .isNull(Task::getLeaseOwner)
+                .update();
+    }
+
+    @Override
+    @Transactional
+    public List<Long> claimTasksSkipLocked(int limit, String owner, LocalDateTime leaseExpireTime) {
+        // 集群模式：各节点锁定互不相交的一批行，无需在同一批候选上竞争
+        List<Long> ids = this.baseMapper.selectClaimableIdsForUpdate(TaskStatus.PENDING.getCode(), Math.max(1, limit));
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        this.lambdaUpdate()
+                .set(Task::getLeaseOwner, owner)
+                .set(Task::getLeaseExpireTime, leaseExpireTime)
+                .in(Task::getId, ids)
+                .update();
+        return ids;
+    }
+
+    @Override
+    public List<Task> findClaimCandidates(int perUserLimit, int shortMediaSeconds) {
+        return this.baseMapper.selectClaimCandidates(TaskStatus.PENDING.getCode(), Math.max(1, perUserLimit), shortMediaSeconds);
+    }
+
+    @Override
+    @Transactional
+    public List<Long> claimSelectedTasksSkipLocked(Collection<Long> taskIds, String owner, LocalDateTime leaseExpireTime) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            return List.of();
+        }
+        // 只锁定调度器选中的行，已被其他节点锁定或认领的跳过
+        List<Long> ids = this.lambdaQuery()
+                .select(Task::getId)
+                .in(Task::getId, taskIds)
+                .eq(Task::getTaskStatus, TaskStatus.PENDING.getCode())
+                .isNull(Task::getLeaseOwner)
+                .last("FOR UPDATE SKIP LOCKED")
+                .list()
+                .stream().map(Task::getId).toList();
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        this.lambdaUpdate()
+                .set(Task::getLeaseOwner, owner)
+                .set(Task::getLeaseExpireTime, leaseExpireTime)
+                .in(Task::getId, ids)
+                .update();
+        return ids;
+    }
+
+    @Override
+    public int renewLeases(Collection<Long> taskIds, String owner, LocalDateTime leaseExpireTime) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            return 0;
+        }
+        Task update = new Task();
+        update.setLeaseExpireTime(leaseExpireTime);
+        LambdaQueryWrapper<Task> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(Task::getId, taskIds).eq(Task::getLeaseOwner, owner);
+        return this.baseMapper.update(update, wrapper);
+    }
+
+    @Override
+    public List<Long> findLeasedTaskIds(Collection<Long> taskIds, String owner) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            return List.of();
+        }
+        LambdaQueryWrapper<Task> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Task::getId).in(Task::getId, taskIds).eq(Task::getLeaseOwner, owner);
+        return this.list(wrapper).stream().map(Task::getId).toList();
+    }
+
+    @Override
+    public void releaseLease(Long taskId, String owner) {
+        this.lambdaUpdate()
+                .set(Task::getLeaseOwner, null)
+                .set(Task::getLeaseExpireTime, null)
+                .eq(Task::getId, taskId)
+                .eq(Task::getLeaseOwner, owner)
+                .update();
+    }
+
+    @Override
+    public void requeueTask(Long taskId, String owner) {
+        Task update = new Task();
+        update.setTaskStatus(TaskStatus.PENDING.getCode());
+        this.baseMapper.update(update, new LambdaUpdateWrapper<Task>()
+                .set(Task::getLeaseOwner, null)
+                .set(Task::getLeaseExpireTime, null)
+                .eq(Task::getId, taskId)
+                .eq(Task::getLeaseOwner, owner));
+    }
+
+    @Override
+    public int requeueExpiredLeases(LocalDateTime now) {
+        Task update = new Task();
+        update.setTaskStatus(TaskStatus.PENDING.getCode());
+        return this.baseMapper.update(update, new LambdaUpdateWrapper<Task>()
+                .set(Task::getLeaseOwner, null)
+                .set(Task::getLeaseExpireTime, null)
+                .in(Task::getTaskStatus, IN_PROGRESS_CODES)
+                .isNotNull(Task::getLeaseOwner)
+                .lt(Task::getLeaseExpireTime, now));
+    }
+
+    @Override
+    public int requeueUnleasedTasks() {
+        Task update = new Task();
+        update.setTaskStatus(TaskStatus.PENDING.getCode());
+        LambdaQueryWrapper<Task> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(Task::getTaskStatus, IN_PROGRESS_CODES)
+                .ne(Task::getTaskStatus, TaskStatus.PENDING.getCode())
+                .isNull(Task::getLeaseOwner);
+        return this.baseMapper.update(update, wrapper);
+    }
+
+    /**
+     * 在后台线程探测新入队任务的媒体信息，供公平调度优先短媒体；上传请求无需等待 ffprobe。
+     * 任务已被认领时不再写入，由提取阶段自行探测（结果有缓存）。
+     */
+    @Async
+    @Override
+    public CompletableFuture<Void> probeMediaInfoAsync(Long taskId, String mediaPath) {
+        Task task = new Task();
+        task.setId(taskId);
+        task.setVideoLocalPath(mediaPath);
+        task.setTaskStatus(TaskStatus.PENDING.getCode());
+        if (mediaProbeService.fillMediaInfo(task)) {
+            writeMediaInfo(task);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 为历史任务补齐媒体信息。
+     * 仍在队列或处理中的任务由流水线自行探测，这里跳过，避免在请求线程上重复执行 ffprobe。
+     */
+    private void ensureMediaInfoPresent(Task task) {
+        if (task.getLeaseOwner() != null || task.getTaskStatus() == null
+                || IN_PROGRESS_CODES.contains(task.getTaskStatus())) {
+            return;
+        }
+        if (mediaProbeService.fillMediaInfo(task)) {
+            writeMediaInfo(task);
+        }
+    }
+
+    /**
+     * 只更新媒体相关列，并以“未被租用且状态未变”为条件，不覆盖并发写入的状态与租约。
+     */
+    private void writeMediaInfo(Task task) {
+        this.update(new LambdaUpdateWrapper<Task>()
+                .set(Task::getDurationSeconds, task.getDurationSeconds())
+                .set(Task::getSourceFormat, task.getSourceFormat())
+                .set(Task::getSourceAudioCodec, task.getSourceAudioCodec())
+                .set(Task::getSourceVideoCodec, task.getSourceVideoCodec())
+                .set(Task::getSourceSampleRate, task.getSourceSampleRate())
+                .set(Task::getSourceChannels, task.getSourceChannels())
+                .eq(Task::getId, task.getId())
+                .eq(Task::getTaskStatus, task.getTaskStatus())
+                .isNull(Task::getLeaseOwner));
     }
 
     private void ensureTaskAccessible(Task task) {
@@ -0,0 +1,169 @@
+package com.aviscribe.service.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 以流式方式解析 NLS 识别结果（Sentences / Words），不构建完整的 JSON 树；
+ * 词按时间归入所在句子，并编码为紧凑的二进制块随句子一起存储。
+ *
+ * <p>词块格式（均为无符号变长整数）：词数，随后每个词依次为
+ * 相对句子开始的偏移毫秒、时长毫秒、UTF-8 字节数与文本字节。</p>
+ */
+final class TranscriptParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private TranscriptParser() {
+    }
+
+    record Word(long beginMs, long endMs, String text) {
+    }
+
+    static final class Sentence {
+        final long beginMs;
+        final long endMs;
+        final String text;
+        final List<Word> words = new ArrayList<>();
+
+        Sentence(long beginMs, long endMs, String text) {
+            this.beginMs = beginMs;
+            this.endMs = endMs;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 解析识别结果，返回按开始时间排序的句子，词已归入对应句子。
+     */
+    static List<Sentence> parse(String result) throws IOException {
+        List<Sentence> sentences = new ArrayList<>();
+        List<Word> words = new ArrayList<>();
+        if (result == null || result.isBlank()) {
+            return sentences;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(result)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("识别结果不是 JSON 对象");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY && "Sentences".equals(field)) {
+                    readItems(parser, "Text", (begin, end, text) -> sentences.add(new Sentence(begin, end, text)));
+                } else if (token == JsonToken.START_ARRAY && "Words".equals(field)) {
+                    readItems(parser, "Word", (begin, end, text) -> words.add(new Word(begin, end, text)));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        sentences.sort(Comparator.comparingLong(s -> s.beginMs));
+        words.sort(Comparator.comparingLong(Word::beginMs));
+        assignWords(sentences, words);
+        return sentences;
+    }
+
+    private interface ItemConsumer {
+        void accept(long beginMs, long endMs, String text);
+    }
+
+    private static void readItems(JsonParser parser, String textField, ItemConsumer consumer) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            long begin = 0;
+            long end = 0;
+            String text = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("BeginTime".equals(field)) {
+                    begin = parser.getValueAsLong();
+                } else if ("EndTime".equals(field)) {
+                    end = parser.getValueAsLong();
+                } else if (textField.equals(field)) {
+                    text = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            consumer.accept(begin, end, text != null ? text : "");
+        }
+    }
+
+    /**
+     * 两者均按开始时间排序：词归入结束时间在其开始之后的第一个句子，超出末句的词归入末句。
+     */
+    private static void assignWords(List<Sentence> sentences, List<Word> words) {
+        if (sentences.isEmpty()) {
+            return;
+        }
+        int index = 0;
+        for (Word word : words) {
+            while (index < sentences.size() - 1 && word.beginMs() >= sentences.get(index).endMs) {
+                index++;
+            }
+            sentences.get(index).words.add(word);
+        }
+    }
+
+    static byte[] encodeWords(long sentenceBeginMs, List<Word> words) {
+        if (words.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(words.size() * 8);
+        writeVarint(out, words.size());
+        for (Word word : words) {
+            byte[] text = word.text().getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, Math.max(0, word.beginMs() - sentenceBeginMs));
+            writeVarint(out, Math.max(0, word.endMs() - word.beginMs()));
+            writeVarint(out, text.length);
+            out.write(text, 0, text.length);
+        }
+        return out.toByteArray();
+    }
+
+    static List<Word> decodeWords(long sentenceBeginMs, byte[] data) {
+        List<Word> words = new ArrayList<>();
+        if (data == null || data.length == 0) {
+            return words;
+        }
+        int[] position = {0};
+        long count = readVarint(data, position);
+        for (long i = 0; i < count; i++) {
+            long begin = sentenceBeginMs + readVarint(data, position);
+            long end = begin + readVarint(data, position);
+            int length = (int) readVarint(data, position);
+            words.add(new Word(begin, end, new String(data, position[0], length, StandardCharsets.UTF_8)));
+            position[0] += length;
+        }
+        return words;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,120 @@
+package com.aviscribe.service.impl;
+
+import com.aviscribe.dto.TranscriptSentenceDTO;
+import com.aviscribe.entity.TranscriptSentence;
+import com.aviscribe.mapper.TranscriptSentenceMapper;
+import com.aviscribe.service.TranscriptService;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@Slf4j
+public class TranscriptServiceImpl extends ServiceImpl<TranscriptSentenceMapper, TranscriptSentence> implements TranscriptService {
+
+    /**
+     * 单次查询最多返回的句子数，避免一次取回整篇转写。
+     */
+    private static final int MAX_SENTENCES = 500;
+
+    @Override
+    @Transactional
+    public void saveTranscript(Long taskId, String rawText) {
+        if (taskId == null) {
+            return;
+        }
+        List<TranscriptParser.Sentence> parsed;
+        try {
+            parsed = TranscriptParser.parse(rawText);
+        } catch (IOException e) {
+            log.warn("[Transcript] 识别结果解析失败, taskId={}: {}", taskId, e.getMessage());
+            return;
+        }
+        deleteByTask(taskId);
+        List<TranscriptSentence> sentences = new ArrayList<>(parsed.size());
+        int offset = 0;
+        for (int i = 0; i < parsed.size(); i++) {
+            TranscriptParser.Sentence item = parsed.get(i);
+            TranscriptSentence sentence = new TranscriptSentence();
+            sentence.setTaskId(taskId);
+            sentence.setSeq(i);
+            sentence.setBeginMs(item.beginMs);
+            sentence.setEndMs(item.endMs);
+            sentence.setStartOffset(offset);
+            offset += item.text.length();
+            sentence.setEndOffset(offset);
+            sentence.setText(item.text);
+            sentence.setWords(TranscriptParser.encodeWords(item.beginMs, item.words));
+            sentences.add(sentence);
+        }
+        saveBatch(sentences);
+        log.info("[Transcript] 已保存 {} 个句子, taskId={}", sentences.size(), taskId);
+    }
+
+    @Override
+    public List<TranscriptSentenceDTO> findByTime(Long taskId, long fromMs, long toMs, boolean withWords) {
+        List<TranscriptSentence> sentences = lambdaQuery()
+                .eq(TranscriptSentence::getTaskId, taskId)
+                .lt(TranscriptSentence::getBeginMs, toMs)
+                .gt(TranscriptSentence::getEndMs, fromMs)
+                .orderByAsc(TranscriptSentence::getSeq)
+                .last("LIMIT " + MAX_SENTENCES)
+                .list();
+        return toDtos(sentences, withWords, fromMs, toMs);
+    }
+
+    @Override
+    public List<TranscriptSentenceDTO> findByOffset(Long taskId, int fromOffset, int toOffset, boolean withWords) {
+        List<TranscriptSentence> sentences = lambdaQuery()
+                .eq(TranscriptSentence::getTaskId, taskId)
+                .lt(TranscriptSentence::getStartOffset, toOffset)
+                .gt(TranscriptSentence::getEndOffset, fromOffset)
+                .orderByAsc(TranscriptSentence::getSeq)
+                .last("LIMIT " + MAX_SENTENCES)
+                .list();
+        return toDtos(sentences, withWords, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void deleteByTask(Long taskId) {
+        if (taskId == null) {
+            return;
+        }
+        lambdaUpdate().eq(TranscriptSentence::getTaskId, taskId).remove();
+    }
+
+    private List<TranscriptSentenceDTO> toDtos(List<TranscriptSentence> sentences, boolean withWords,
+                                               long fromMs, long toMs) {
+        List<TranscriptSentenceDTO> result = new ArrayList<>(sentences.size());
+        for (TranscriptSentence sentence : sentences) {
+            TranscriptSentenceDTO dto = new TranscriptSentenceDTO();
+            dto.setSeq(sentence.getSeq());
+            dto.setBeginMs(sentence.getBeginMs());
+            dto.setEndMs(sentence.getEndMs());
+            dto.setStartOffset(sentence.getStartOffset());
+            dto.setEndOffset(sentence.getEndOffset());
+            dto.setText(sentence.getText());
+            if (withWords) {
+                List<TranscriptSentenceDTO.Word> words = new ArrayList<>();
+                for (TranscriptParser.Word word : TranscriptParser.decodeWords(sentence.getBeginMs(), sentence.getWords())) {
+                    if (word.endMs() <= fromMs || word.beginMs() >= toMs) {
+                        continue;
+                    }
+                    TranscriptSentenceDTO.Word item = new TranscriptSentenceDTO.Word();
+                    item.setBeginMs(word.beginMs());
+                    item.setEndMs(word.endMs());
+                    item.setText(word.text());
+                    words.add(item);
+                }
+                dto.setWords(words);
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+}
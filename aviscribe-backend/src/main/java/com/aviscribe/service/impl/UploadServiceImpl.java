@@ -2,18 +2,27 @@ package com.aviscribe.service.impl;
 
 import com.aviscribe.common.enums.SourceType;
 import com.aviscribe.common.enums.TaskStatus;
+import com.aviscribe.common.utils.FileUtils;
+import com.aviscribe.common.utils.TextUtils;
 import com.aviscribe.dto.UploadUrlRequest;
+import com.aviscribe.entity.MediaResult;
 import com.aviscribe.entity.Task;
-import com.aviscribe.service.JobProcessService;
+import com.aviscribe.pipeline.TaskDispatcher;
+import com.aviscribe.service.MediaResultService;
 import com.aviscribe.service.TaskService;
 import com.aviscribe.service.UploadService;
 import com.aviscribe.common.utils.SecurityUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,11 +36,18 @@ public class UploadServiceImpl implements UploadService {
     private String uploadPath;
 
     private final TaskService taskService;
-    private final JobProcessService jobProcessService;
+    private final TaskDispatcher taskDispatcher;
+    private final FileUtils fileUtils;
+    private final MediaResultService mediaResultService;
 
-    public UploadServiceImpl(TaskService taskService, JobProcessService jobProcessService) {
+    public UploadServiceImpl(TaskService taskService,
+                             TaskDispatcher taskDispatcher,
+                             FileUtils fileUtils,
+                             MediaResultService mediaResultService) {
         this.taskService = taskService;
-        this.jobProcessService = jobProcessService;
+        this.taskDispatcher = taskDispatcher;
+        this.fileUtils = fileUtils;
+        this.mediaResultService = mediaResultService;
     }
 
     @Override
@@ -49,11 +65,26 @@ public class UploadServiceImpl implements UploadService {
                 storageDir.toFile().mkdirs();
             }
             Path destination = Paths.get(uploadPath, newFilename);
-            file.transferTo(destination);
+            // 落盘的同时计算 SHA-256，无需再读一遍文件
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, destination);
+            }
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+
+            MediaResult cached = mediaResultService.findResult(SecurityUtils.getCurrentUserId(), contentHash);
+            if (cached != null) {
+                // 重复上传：直接复用已有识别结果，不再保留这份文件
+                fileUtils.deleteFileQuietly(destination.toString());
+                log.info("上传内容命中已有识别结果, hash={}", contentHash);
+                return createCompletedTask(normalizeTaskName(taskName), contentHash, cached);
+            }
 
-            Task task = createTask(normalizeTaskName(taskName), SourceType.LOCAL, null, destination.toString());
-            // 触发异步处理
-            jobProcessService.processTask(task.getId());
+            Task task = createTask(normalizeTaskName(taskName), SourceType.LOCAL, null, destination.toString(),
+                    contentHash);
+            // 仅入队，由 TaskDispatcher 认领处理；时长在后台探测，完成后再唤醒调度，公平调度可据此让短媒体优先
+            taskService.probeMediaInfoAsync(task.getId(), task.getVideoLocalPath())
+                    .whenComplete((ignored, error) -> taskDispatcher.wakeUp());
             return task;
 
         } catch (Exception e) {
@@ -65,17 +96,14 @@ public class UploadServiceImpl implements UploadService {
     @Override
     public Task handleUrlUpload(UploadUrlRequest request) {
         String taskName = normalizeTaskName(request.getTaskName());
-        Task task = createTask(taskName, SourceType.URL, request.getUrl(), null);
-        
-        // 状态设置为下载中
-        taskService.updateTaskStatus(task.getId(), TaskStatus.DOWNLOADING);
-        
-        // 触发异步处理
-        jobProcessService.processTask(task.getId());
+        Task task = createTask(taskName, SourceType.URL, request.getUrl(), null, null);
+
+        // 仅入队，由 TaskDispatcher 认领处理
+        taskDispatcher.wakeUp();
         return task;
     }
 
-    private Task createTask(String taskName, SourceType type, String url, String localPath) {
+    private Task createTask(String taskName, SourceType type, String url, String localPath, String contentHash) {
         Long userId = SecurityUtils.getCurrentUserId();
         Task task = new Task();
         task.setUserId(userId);
@@ -83,12 +111,32 @@ public class UploadServiceImpl implements UploadService {
         task.setSourceType(type.getValue());
         task.setVideoUrl(url);
         task.setVideoLocalPath(localPath);
+        task.setContentHash(contentHash);
         task.setTaskStatus(TaskStatus.PENDING.getCode());
         task.setCreateTime(LocalDateTime.now());
         task.setUpdateTime(LocalDateTime.now());
         taskService.save(task);
         return task;
     }
+
+    private Task createCompletedTask(String taskName, String contentHash, MediaResult cached) {
+        Task task = new Task();
+        task.setUserId(SecurityUtils.getCurrentUserId());
+        task.setTaskName(taskName != null ? taskName : ensureTaskName(TextUtils.extractTitle(cached.getFormattedText())));
+        task.setSourceType(SourceType.LOCAL.getValue());
+        task.setContentHash(contentHash);
+        task.setDurationSeconds(cached.getDurationSeconds());
+        task.setRawText(cached.getRawText());
+        task.setFormattedText(cached.getFormattedText());
+        task.setLastCompletedStage(TaskStatus.FORMATTING.getCode());
+        task.setTaskStatus(TaskStatus.COMPLETED.getCode());
+        LocalDateTime now = LocalDateTime.now();
+        task.setCreateTime(now);
+        task.setUpdateTime(now);
+        task.setFinishTime(now);
+        taskService.save(task);
+        return task;
+    }
     
     private String getFileExtension(String filename) {
         if (filename == null || !filename.contains(".")) {
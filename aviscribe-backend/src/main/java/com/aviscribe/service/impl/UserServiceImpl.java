@@ -1,5 +1,6 @@
 package com.aviscribe.service.impl;
 
+import com.aviscribe.common.enums.UserRole;
 import com.aviscribe.entity.User;
 import com.aviscribe.mapper.UserMapper;
 import com.aviscribe.service.UserService;
@@ -8,6 +9,10 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
 
@@ -75,4 +80,15 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         user.setPasswordHash(passwordHash);
         updateById(user);
     }
+
+    @Override
+    public Map<Long, UserRole> findRoles(Collection<Long> ids) {
+        Map<Long, UserRole> roles = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return roles;
+        }
+        lambdaQuery().select(User::getId, User::getRole).in(User::getId, ids).list()
+                .forEach(user -> roles.put(user.getId(), UserRole.fromString(user.getRole())));
+        return roles;
+    }
 }
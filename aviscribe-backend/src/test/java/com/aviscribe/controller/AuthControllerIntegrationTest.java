@@ -156,6 +156,17 @@ class AuthControllerIntegrationTest {
         login(username, "newPass1");
     }
 
+    @Test
+    void metricsRequireAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isUnauthorized());
+
+        AuthResponse user = register(randomUsername(), "secret123", "UserM");
+        mockMvc.perform(get("/actuator/metrics")
+                        .with(bearer(user.getAccessToken())))
+                .andExpect(status().isForbidden());
+    }
+
     private AuthResponse register(String username, String password, String displayName) throws Exception {
         Map<String, Object> payload = new HashMap<>();
         payload.put("username", username);
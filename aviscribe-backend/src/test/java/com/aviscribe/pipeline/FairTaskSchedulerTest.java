@@ -0,0 +1,85 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.enums.UserRole;
+import com.aviscribe.entity.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FairTaskSchedulerTest {
+
+    private static final long HEAVY_USER = 1L;
+    private static final long LIGHT_USER = 2L;
+    private static final long ADMIN_USER = 3L;
+
+    @Test
+    void heavyUserDoesNotStarveOthers() {
+        FairTaskScheduler scheduler = new FairTaskScheduler(new TaskQueueProperties.Fairness());
+        List<Task> candidates = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            candidates.add(task(i, HEAVY_USER, 300));
+        }
+        candidates.add(task(100, LIGHT_USER, 300));
+
+        List<Long> selected = scheduler.select(candidates, Map.of(), 2);
+
+        assertThat(selected).containsExactly(1L, 100L);
+    }
+
+    @Test
+    void adminWeightGetsLargerShare() {
+        FairTaskScheduler scheduler = new FairTaskScheduler(new TaskQueueProperties.Fairness());
+        List<Task> candidates = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            candidates.add(task(i, LIGHT_USER, 300));
+            candidates.add(task(100 + i, ADMIN_USER, 300));
+        }
+
+        List<Long> selected = scheduler.select(candidates,
+                Map.of(LIGHT_USER, UserRole.USER, ADMIN_USER, UserRole.ADMIN), 10);
+
+        long adminCount = selected.stream().filter(id -> id > 100).count();
+        assertThat(adminCount).isEqualTo(8);
+    }
+
+    @Test
+    void shortMediaIsCheaperThanLongMedia() {
+        FairTaskScheduler scheduler = new FairTaskScheduler(new TaskQueueProperties.Fairness());
+        List<Task> candidates = List.of(
+                task(1, HEAVY_USER, 3600),
+                task(2, LIGHT_USER, 30),
+                task(3, LIGHT_USER, 30));
+
+        List<Long> selected = scheduler.select(candidates, Map.of(), 2);
+
+        assertThat(selected).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void roundRobinPositionCarriesAcrossCalls() {
+        FairTaskScheduler scheduler = new FairTaskScheduler(new TaskQueueProperties.Fairness());
+        List<Task> candidates = List.of(
+                task(1, HEAVY_USER, 300),
+                task(2, HEAVY_USER, 300),
+                task(100, LIGHT_USER, 300),
+                task(101, LIGHT_USER, 300));
+
+        assertThat(scheduler.select(candidates, Map.of(), 1)).containsExactly(1L);
+        List<Task> remaining = List.of(
+                task(2, HEAVY_USER, 300),
+                task(100, LIGHT_USER, 300),
+                task(101, LIGHT_USER, 300));
+        assertThat(scheduler.select(remaining, Map.of(), 1)).containsExactly(100L);
+    }
+
+    private Task task(long id, long userId, int durationSeconds) {
+        Task task = new Task();
+        task.setId(id);
+        task.setUserId(userId);
+        task.setDurationSeconds(durationSeconds);
+        return task;
+    }
+}
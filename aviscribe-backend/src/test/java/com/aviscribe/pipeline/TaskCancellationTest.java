@@ -0,0 +1,66 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.exception.TaskCancelledException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskCancellationTest {
+
+    private static final Long TASK_ID = 1L;
+
+    @Test
+    void reopenAfterCancelStartsFreshRun() {
+        TaskCancellation cancellation = new TaskCancellation();
+        TaskCancellation.Handle cancelledRun = cancellation.open(TASK_ID);
+        cancellation.cancel(TASK_ID);
+
+        TaskCancellation.Handle retriedRun = cancellation.open(TASK_ID);
+
+        assertThat(retriedRun).isNotSameAs(cancelledRun);
+        assertThat(cancellation.isCancelled(retriedRun)).isFalse();
+        cancellation.begin(retriedRun);
+        cancellation.end();
+        assertThatThrownBy(() -> cancellation.begin(cancelledRun)).isInstanceOf(TaskCancelledException.class);
+    }
+
+    @Test
+    void closingOldRunKeepsNewRunRegistered() {
+        TaskCancellation cancellation = new TaskCancellation();
+        TaskCancellation.Handle cancelledRun = cancellation.open(TASK_ID);
+        cancellation.cancel(TASK_ID);
+        TaskCancellation.Handle retriedRun = cancellation.open(TASK_ID);
+
+        cancellation.close(TASK_ID, cancelledRun);
+
+        assertThat(cancellation.open(TASK_ID)).isSameAs(retriedRun);
+        assertThat(cancellation.cancel(TASK_ID)).isTrue();
+        assertThat(cancellation.isCancelled(retriedRun)).isTrue();
+    }
+
+    @Test
+    void cancelAfterUnbindDoesNotInterruptThread() {
+        TaskCancellation cancellation = new TaskCancellation();
+        TaskCancellation.Handle run = cancellation.open(TASK_ID);
+        cancellation.begin(run);
+        cancellation.end();
+
+        cancellation.cancel(TASK_ID);
+
+        assertThat(Thread.interrupted()).isFalse();
+    }
+
+    @Test
+    void cancelWhileBoundInterruptsAndEndClearsFlag() {
+        TaskCancellation cancellation = new TaskCancellation();
+        TaskCancellation.Handle run = cancellation.open(TASK_ID);
+        cancellation.begin(run);
+
+        cancellation.cancel(TASK_ID);
+
+        assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        cancellation.end();
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+}
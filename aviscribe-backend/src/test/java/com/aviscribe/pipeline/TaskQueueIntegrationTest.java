@@ -0,0 +1,123 @@
+package com.aviscribe.pipeline;
+
+import com.aviscribe.common.enums.TaskStatus;
+import com.aviscribe.entity.Task;
+import com.aviscribe.entity.User;
+import com.aviscribe.mapper.UserMapper;
+import com.aviscribe.service.TaskService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TaskQueueIntegrationTest {
+
+    @Autowired
+    private TaskService taskService;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void setup() {
+        User user = new User();
+        user.setUsername(("queue" + UUID.randomUUID()).replace("-", "").substring(0, 16));
+        user.setPasswordHash("x");
+        user.setDisplayName("Queue");
+        user.setRole("USER");
+        user.setStatus(1);
+        userMapper.insert(user);
+        userId = user.getId();
+    }
+
+    @Test
+    void skipLockedClaimsAreDisjointAcrossNodes() throws Exception {
+        List<Long> lockedIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            lockedIds.add(createPendingTask("claim-" + i).getId());
+        }
+        LocalDateTime expire = LocalDateTime.now().plusMinutes(5);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 节点 A 认领后不提交，持有行锁
+            Future<List<Long>> nodeA = executor.submit(() -> transactionTemplate.execute(status -> {
+                List<Long> claimed = taskService.claimTasksSkipLocked(1000, "node-a", expire);
+                locked.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return claimed;
+            }));
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            List<Long> freshIds = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                freshIds.add(createPendingTask("fresh-" + i).getId());
+            }
+            // 节点 B 在 A 提交前认领：跳过 A 锁定的行，只拿到之后新建的任务，且不会阻塞在 A 的锁上
+            List<Long> nodeB = taskService.claimTasksSkipLocked(1000, "node-b", expire);
+            release.countDown();
+            List<Long> claimedByA = nodeA.get(10, TimeUnit.SECONDS);
+
+            assertThat(claimedByA).containsAll(lockedIds).doesNotContainAnyElementsOf(freshIds);
+            assertThat(nodeB).containsAll(freshIds).doesNotContainAnyElementsOf(claimedByA);
+            for (Long id : lockedIds) {
+                assertThat(taskService.getById(id).getLeaseOwner()).isEqualTo("node-a");
+            }
+            for (Long id : freshIds) {
+                assertThat(taskService.getById(id).getLeaseOwner()).isEqualTo("node-b");
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredLeasesAreRequeued() {
+        Task task = createPendingTask("expired");
+        assertThat(taskService.claimTask(task.getId(), "dead-node", LocalDateTime.now().minusSeconds(1))).isTrue();
+        taskService.updateTaskStatus(task.getId(), TaskStatus.TRANSCRIBING);
+
+        taskService.requeueExpiredLeases(LocalDateTime.now());
+
+        Task requeued = taskService.getById(task.getId());
+        assertThat(requeued.getTaskStatus()).isEqualTo(TaskStatus.PENDING.getCode());
+        assertThat(requeued.getLeaseOwner()).isNull();
+        assertThat(taskService.claimTask(task.getId(), "live-node", LocalDateTime.now().plusMinutes(5))).isTrue();
+    }
+
+    private Task createPendingTask(String name) {
+        Task task = new Task();
+        task.setUserId(userId);
+        task.setTaskName(name);
+        task.setSourceType(1);
+        task.setTaskStatus(TaskStatus.PENDING.getCode());
+        task.setCreateTime(LocalDateTime.now());
+        task.setUpdateTime(LocalDateTime.now());
+        taskService.save(task);
+        return task;
+    }
+}
@@ -0,0 +1,60 @@
+package com.aviscribe.service.impl;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AudioSegmentPlannerTest {
+
+    @Test
+    void shortAudioIsOneSegment() {
+        List<double[]> segments = AudioSegmentPlanner.plan(500, List.of(), 600, 120);
+
+        assertThat(segments).containsExactly(new double[]{0, 500});
+    }
+
+    @Test
+    void hardCutsWithoutSilence() {
+        List<double[]> segments = AudioSegmentPlanner.plan(1500, List.of(), 600, 120);
+
+        assertThat(segments).containsExactly(new double[]{0, 600}, new double[]{600, 1200}, new double[]{1200, 1500});
+    }
+
+    @Test
+    void cutsAtLatestSilenceWithinWindow() {
+        List<double[]> silences = List.of(new double[]{290, 300}, new double[]{500, 510}, new double[]{700, 710});
+
+        List<double[]> segments = AudioSegmentPlanner.plan(1300, silences, 600, 120);
+
+        assertThat(segments).containsExactly(new double[]{0, 505}, new double[]{505, 705}, new double[]{705, 1300});
+    }
+
+    @Test
+    void silenceBeforeMinimumLengthIsIgnored() {
+        List<double[]> segments = AudioSegmentPlanner.plan(700, List.of(new double[]{40, 60}), 600, 120);
+
+        assertThat(segments).containsExactly(new double[]{0, 600}, new double[]{600, 700});
+    }
+
+    @Test
+    void firstSegmentHasItsOwnLimit() {
+        List<double[]> segments = AudioSegmentPlanner.plan(1000, List.of(), 60, 600, 120);
+
+        assertThat(segments).containsExactly(new double[]{0, 60}, new double[]{60, 660}, new double[]{660, 1000});
+    }
+
+    @Test
+    void silenceAtSegmentStartDoesNotStall() {
+        List<double[]> segments = AudioSegmentPlanner.plan(1500, List.of(new double[]{595, 605}), 600, 0);
+
+        assertThat(segments).containsExactly(new double[]{0, 600}, new double[]{600, 1200}, new double[]{1200, 1500});
+    }
+
+    @Test
+    void nonPositiveMaximumIsRejected() {
+        assertThatThrownBy(() -> AudioSegmentPlanner.plan(1500, List.of(), 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
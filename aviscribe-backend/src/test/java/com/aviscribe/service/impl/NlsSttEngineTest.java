@@ -0,0 +1,47 @@
+package com.aviscribe.service.impl;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NlsSttEngineTest {
+
+    @Test
+    void stitchResultsShiftsTimesBySegmentStart() {
+        List<String> results = List.of(
+                "{\"Sentences\":[{\"BeginTime\":100,\"EndTime\":900,\"Text\":\"一\"}],"
+                        + "\"Words\":[{\"BeginTime\":100,\"EndTime\":300}]}",
+                "{\"Sentences\":[{\"BeginTime\":0,\"EndTime\":500,\"Text\":\"二\"}],"
+                        + "\"Words\":[{\"BeginTime\":0,\"EndTime\":200}]}");
+        List<double[]> segments = List.of(new double[]{0, 600.5}, new double[]{600.5, 900});
+
+        JSONObject merged = JSONObject.parseObject(NlsSttEngine.stitchResults(results, segments));
+
+        JSONArray sentences = merged.getJSONArray("Sentences");
+        assertThat(sentences).hasSize(2);
+        assertThat(sentences.getJSONObject(0).getLongValue("BeginTime")).isEqualTo(100);
+        assertThat(sentences.getJSONObject(1).getLongValue("BeginTime")).isEqualTo(600_500);
+        assertThat(sentences.getJSONObject(1).getLongValue("EndTime")).isEqualTo(601_000);
+        assertThat(sentences.getJSONObject(1).getString("Text")).isEqualTo("二");
+        assertThat(merged.getJSONArray("Words").getJSONObject(1).getLongValue("EndTime")).isEqualTo(600_700);
+    }
+
+    @Test
+    void stitchResultsSkipsSilentSegments() {
+        List<String> results = Arrays.asList(
+                "",
+                null,
+                "{\"Sentences\":[{\"BeginTime\":0,\"EndTime\":1000,\"Text\":\"三\"}]}");
+        List<double[]> segments = List.of(new double[]{0, 600}, new double[]{600, 1200}, new double[]{1200, 1500});
+
+        JSONObject merged = JSONObject.parseObject(NlsSttEngine.stitchResults(results, segments));
+
+        assertThat(merged.getJSONArray("Sentences")).hasSize(1);
+        assertThat(merged.getJSONArray("Sentences").getJSONObject(0).getLongValue("BeginTime")).isEqualTo(1_200_000);
+        assertThat(merged.containsKey("Words")).isFalse();
+    }
+}
@@ -0,0 +1,170 @@
+package com.aviscribe.service.impl;
+
+import com.alibaba.fastjson.JSONObject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SilenceTrimmerTest {
+
+    private static final int FRAME = 320; // 20ms 帧的样本数
+    private static final long MIN_SILENCE_FRAMES = 25; // 500ms
+    private static final long KEEP_FRAMES = 10; // 200ms，两侧各 100ms
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void leadingSilenceKeepsOnlyPadBeforeSpeech() {
+        List<long[]> kept = SilenceTrimmer.keptRanges(frames(false, 50, true, 10), MIN_SILENCE_FRAMES, KEEP_FRAMES);
+
+        assertThat(kept).containsExactly(new long[]{45 * FRAME, 60 * FRAME});
+    }
+
+    @Test
+    void trailingSilenceKeepsOnlyPadAfterSpeech() {
+        List<long[]> kept = SilenceTrimmer.keptRanges(frames(true, 10, false, 50), MIN_SILENCE_FRAMES, KEEP_FRAMES);
+
+        assertThat(kept).containsExactly(new long[]{0, 15 * FRAME});
+    }
+
+    @Test
+    void longPauseIsCutAndShortPauseIsKept() {
+        boolean[] speech = frames(true, 10, false, 10, true, 10, false, 50, true, 10);
+
+        List<long[]> kept = SilenceTrimmer.keptRanges(speech, MIN_SILENCE_FRAMES, KEEP_FRAMES);
+
+        assertThat(kept).containsExactly(new long[]{0, 35 * FRAME}, new long[]{75 * FRAME, 90 * FRAME});
+    }
+
+    @Test
+    void pauseShorterThanKeptPaddingIsNotCut() {
+        List<long[]> kept = SilenceTrimmer.keptRanges(frames(true, 10, false, 30, true, 10), MIN_SILENCE_FRAMES, 60);
+
+        assertThat(kept).containsExactly(new long[]{0, 50 * FRAME});
+    }
+
+    @Test
+    void allSilenceKeepsNothing() {
+        assertThat(SilenceTrimmer.keptRanges(frames(false, 50), MIN_SILENCE_FRAMES, KEEP_FRAMES)).isEmpty();
+    }
+
+    @Test
+    void timeAtRangeJoinMapsByEndFlag() {
+        // 保留 [0, 300ms) 与 [1100ms, 1400ms)，压缩后在 300ms 处相接
+        SilenceTrimmer.OffsetMap offsets = SilenceTrimmer.OffsetMap.of(
+                List.of(new long[]{0, 4800}, new long[]{17600, 22400}));
+
+        assertThat(offsets.toOriginalMs(150, false)).isEqualTo(150);
+        assertThat(offsets.toOriginalMs(300, true)).isEqualTo(300);
+        assertThat(offsets.toOriginalMs(300, false)).isEqualTo(1100);
+        assertThat(offsets.toOriginalMs(450, true)).isEqualTo(1250);
+    }
+
+    @Test
+    void leadingTrimShiftsAllTimes() {
+        SilenceTrimmer.OffsetMap offsets = SilenceTrimmer.OffsetMap.of(List.of(new long[]{14400, 19200}));
+
+        assertThat(offsets.toOriginalMs(0, false)).isEqualTo(900);
+        assertThat(offsets.toOriginalMs(0, true)).isEqualTo(900);
+        assertThat(offsets.toOriginalMs(300, true)).isEqualTo(1200);
+    }
+
+    @Test
+    void remapResultRestoresSentenceAndWordTimes() {
+        SilenceTrimmer.OffsetMap offsets = SilenceTrimmer.OffsetMap.of(
+                List.of(new long[]{0, 4800}, new long[]{17600, 22400}));
+        String result = "{\"Sentences\":[{\"BeginTime\":0,\"EndTime\":300},{\"BeginTime\":300,\"EndTime\":600}],"
+                + "\"Words\":[{\"BeginTime\":320,\"EndTime\":400}]}";
+
+        JSONObject remapped = JSONObject.parseObject(offsets.remapResult(result));
+
+        assertThat(remapped.getJSONArray("Sentences").getJSONObject(0).getLongValue("EndTime")).isEqualTo(300);
+        assertThat(remapped.getJSONArray("Sentences").getJSONObject(1).getLongValue("BeginTime")).isEqualTo(1100);
+        assertThat(remapped.getJSONArray("Sentences").getJSONObject(1).getLongValue("EndTime")).isEqualTo(1400);
+        assertThat(remapped.getJSONArray("Words").getJSONObject(0).getLongValue("BeginTime")).isEqualTo(1120);
+    }
+
+    @Test
+    void partialLastFrameIsKeptWithFinalSpeech() throws IOException {
+        Path source = writeWav(frames(true, 10), 100, true);
+        Path target = dir.resolve("trimmed.wav");
+
+        SilenceTrimmer.Result result = SilenceTrimmer.trim(source, target, settings());
+
+        assertThat(result.trimmedMs()).isEqualTo(result.originalMs()).isEqualTo(206);
+        assertThat(Files.size(target)).isEqualTo(44 + (10 * FRAME + 100) * 2);
+    }
+
+    @Test
+    void partialLastFrameIsDroppedWithTrailingSilence() throws IOException {
+        Path source = writeWav(frames(true, 10, false, 50), 100, false);
+        Path target = dir.resolve("trimmed.wav");
+
+        SilenceTrimmer.Result result = SilenceTrimmer.trim(source, target, settings());
+
+        assertThat(result.originalMs()).isEqualTo((60 * FRAME + 100) * 1000L / 16000);
+        assertThat(result.trimmedMs()).isEqualTo(300);
+        assertThat(Files.size(target)).isEqualTo(44 + 15 * FRAME * 2);
+    }
+
+    @Test
+    void nonPcmWavIsNotTrimmed() throws IOException {
+        Path source = dir.resolve("not-wav.mp3");
+        Files.write(source, new byte[1024]);
+
+        assertThat(SilenceTrimmer.trim(source, dir.resolve("out.wav"), settings())).isNull();
+        assertThat(Files.exists(dir.resolve("out.wav"))).isFalse();
+    }
+
+    private static SilenceTrimmer.Settings settings() {
+        return new SilenceTrimmer.Settings(-40, MIN_SILENCE_FRAMES * 20, KEEP_FRAMES * 20);
+    }
+
+    /**
+     * 按 (是否语音, 帧数) 依次展开为逐帧结果。
+     */
+    private static boolean[] frames(Object... runs) {
+        int total = 0;
+        for (int i = 1; i < runs.length; i += 2) {
+            total += (Integer) runs[i];
+        }
+        boolean[] speech = new boolean[total];
+        int position = 0;
+        for (int i = 0; i < runs.length; i += 2) {
+            boolean value = (Boolean) runs[i];
+            int count = (Integer) runs[i + 1];
+            for (int j = 0; j < count; j++) {
+                speech[position++] = value;
+            }
+        }
+        return speech;
+    }
+
+    /**
+     * 写出 16kHz 单声道 16bit WAV：语音帧为 440Hz 正弦，静音帧为 0，末尾追加 tailSamples 个不足一帧的样本。
+     */
+    private Path writeWav(boolean[] speech, int tailSamples, boolean tailIsSpeech) throws IOException {
+        int samples = speech.length * FRAME + tailSamples;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0x46464952).putInt(36 + samples * 2).putInt(0x45564157);
+        buffer.putInt(0x20746D66).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(16000).putInt(32000).putShort((short) 2).putShort((short) 16);
+        buffer.putInt(0x61746164).putInt(samples * 2);
+        for (int i = 0; i < samples; i++) {
+            int frame = i / FRAME;
+            boolean loud = frame < speech.length ? speech[frame] : tailIsSpeech;
+            buffer.putShort(loud ? (short) (8000 * Math.sin(2 * Math.PI * 440 * i / 16000.0)) : 0);
+        }
+        Path path = dir.resolve("source.wav");
+        Files.write(path, buffer.array());
+        return path;
+    }
+}
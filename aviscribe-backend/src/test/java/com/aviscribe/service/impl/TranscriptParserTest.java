@@ -0,0 +1,48 @@
+package com.aviscribe.service.impl;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TranscriptParserTest {
+
+    @Test
+    void encodeDecodeRoundTripsMultiByteVarintsAndUtf8() {
+        long sentenceBegin = 1_000_000;
+        List<TranscriptParser.Word> words = List.of(
+                new TranscriptParser.Word(sentenceBegin, sentenceBegin + 100, "你好"),
+                // 偏移与时长超过 127 / 16383，需要多字节变长整数
+                new TranscriptParser.Word(sentenceBegin + 200, sentenceBegin + 20_000, "world"),
+                new TranscriptParser.Word(sentenceBegin + 3_000_000, sentenceBegin + 3_000_500, "🎧音频"));
+
+        byte[] encoded = TranscriptParser.encodeWords(sentenceBegin, words);
+
+        assertThat(TranscriptParser.decodeWords(sentenceBegin, encoded)).containsExactlyElementsOf(words);
+    }
+
+    @Test
+    void encodeWordsReturnsNullForNoWords() {
+        assertThat(TranscriptParser.encodeWords(0, List.of())).isNull();
+        assertThat(TranscriptParser.decodeWords(0, null)).isEmpty();
+    }
+
+    @Test
+    void parseAssignsWordsToSentencesAtBoundaries() throws Exception {
+        String result = "{\"Sentences\":["
+                + "{\"BeginTime\":1000,\"EndTime\":2000,\"Text\":\"二\"},"
+                + "{\"BeginTime\":0,\"EndTime\":1000,\"Text\":\"一\"}],"
+                + "\"Words\":["
+                + "{\"BeginTime\":0,\"EndTime\":500,\"Word\":\"a\"},"
+                + "{\"BeginTime\":999,\"EndTime\":1000,\"Word\":\"b\"},"
+                + "{\"BeginTime\":1000,\"EndTime\":1500,\"Word\":\"c\"},"
+                + "{\"BeginTime\":2500,\"EndTime\":2600,\"Word\":\"d\"}]}";
+
+        List<TranscriptParser.Sentence> sentences = TranscriptParser.parse(result);
+
+        assertThat(sentences).extracting(s -> s.text).containsExactly("一", "二");
+        // 开始时间等于句子结束时间的词归入下一句，超出末句的词归入末句
+        assertThat(sentences.get(0).words).extracting(TranscriptParser.Word::text).containsExactly("a", "b");
+        assertThat(sentences.get(1).words).extracting(TranscriptParser.Word::text).containsExactly("c", "d");
+    }
+}
@@ -10,8 +10,8 @@ CREATE TABLE IF NOT EXISTS t_user (
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
-CREATE UNIQUE INDEX uk_user_username ON t_user(username);
-CREATE UNIQUE INDEX uk_user_phone ON t_user(phone);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_user_username ON t_user(username);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_user_phone ON t_user(phone);
 
 CREATE TABLE IF NOT EXISTS t_task (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -26,11 +26,86 @@ CREATE TABLE IF NOT EXISTS t_task (
     formatted_text CLOB,
     error_log CLOB,
     duration_seconds INT,
+    source_format VARCHAR(128),
+    source_audio_codec VARCHAR(32),
+    source_video_codec VARCHAR(32),
+    source_sample_rate INT,
+    source_channels INT,
+    content_hash CHAR(64),
+    audio_hash CHAR(64),
+    audio_object_key VARCHAR(512),
+    progress_percent INT,
+    progress_ms BIGINT,
+    progress_speed DOUBLE,
+    last_completed_stage INT,
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     finish_time TIMESTAMP,
+    lease_owner VARCHAR(64),
+    lease_expire_time TIMESTAMP,
     CONSTRAINT fk_task_user FOREIGN KEY (user_id) REFERENCES t_user(id)
 );
 
-CREATE INDEX idx_task_user ON t_task(user_id);
-CREATE INDEX idx_task_status ON t_task(task_status);
+CREATE INDEX IF NOT EXISTS idx_task_user ON t_task(user_id);
+CREATE INDEX IF NOT EXISTS idx_task_status ON t_task(task_status);
+CREATE INDEX IF NOT EXISTS idx_task_lease ON t_task(task_status, lease_expire_time);
+
+CREATE TABLE IF NOT EXISTS t_media_result (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    media_hash CHAR(64) NOT NULL,
+    scope_user_id BIGINT NOT NULL,
+    raw_text CLOB,
+    formatted_text CLOB,
+    duration_seconds INT,
+    source_task_id BIGINT,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_media_result_hash ON t_media_result(media_hash, scope_user_id);
+
+CREATE TABLE IF NOT EXISTS t_stt_latency (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_id BIGINT,
+    duration_seconds INT,
+    processing_ms BIGINT,
+    poll_count INT,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS t_task_segment (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_id BIGINT NOT NULL,
+    seq INT NOT NULL,
+    start_ms BIGINT NOT NULL,
+    end_ms BIGINT NOT NULL,
+    text TEXT,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_task_segment_seq ON t_task_segment(task_id, seq);
+
+CREATE TABLE IF NOT EXISTS t_transcript_sentence (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_id BIGINT NOT NULL,
+    seq INT NOT NULL,
+    begin_ms BIGINT NOT NULL,
+    end_ms BIGINT NOT NULL,
+    start_offset INT NOT NULL,
+    end_offset INT NOT NULL,
+    text TEXT,
+    words BLOB
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_transcript_sentence_seq ON t_transcript_sentence(task_id, seq);
+
+CREATE TABLE IF NOT EXISTS t_stt_callback (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    nls_task_id VARCHAR(64) NOT NULL,
+    task_id BIGINT,
+    callback_nonce CHAR(32) NOT NULL,
+    result_body TEXT,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    complete_time TIMESTAMP
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_stt_callback_nls_task ON t_stt_callback(nls_task_id);
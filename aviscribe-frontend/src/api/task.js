@@ -31,4 +31,29 @@ export function renameTask(taskId, taskName) {
     method: 'patch',
     data: { taskName }
   })
-}
\ No newline at end of file
+}
+
+// 取消未结束的任务
+export function cancelTask(taskId) {
+  return request({
+    url: `/task/${taskId}/cancel`,
+    method: 'post'
+  })
+}
+
+// 重试失败任务（从最近完成的阶段继续）
+export function retryTask(taskId) {
+  return request({
+    url: `/task/${taskId}/retry`,
+    method: 'post'
+  })
+}
+
+// 转录中已完成的分段文本，afterSeq 为已收到的最后一个分段序号
+export function getPartialTranscript(taskId, afterSeq = -1) {
+  return request({
+    url: `/task/${taskId}/partial`,
+    method: 'get',
+    params: { afterSeq }
+  })
+}